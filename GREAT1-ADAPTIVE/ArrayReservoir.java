@@ -0,0 +1,51 @@
+/**
+ * reservoir in two rows of edges and two rows of p_uv and r_uv, 24 bytes per slot
+ * p_uv is kept as a double, so the estimates are exact
+ */
+public class ArrayReservoir implements Reservoir {
+
+    private final int[][] edges;                                // src and dst of each slot
+    private final double[][] p_and_round;                       // p_uv and r_uv of each slot
+
+    /**
+     * @param slots number of reservoir slots, including slot 0
+     */
+    public ArrayReservoir(int slots) {
+        this.edges = new int[2][slots];
+        this.p_and_round = new double[2][slots];
+    }
+
+    @Override
+    public void set(int slot, int src, int dst, double p, int round) {
+        edges[0][slot] = src;
+        edges[1][slot] = dst;
+        p_and_round[0][slot] = p;
+        p_and_round[1][slot] = round;
+    }
+
+    @Override
+    public int src(int slot) {
+        return edges[0][slot];
+    }
+
+    @Override
+    public int dst(int slot) {
+        return edges[1][slot];
+    }
+
+    @Override
+    public double p(int slot) {
+        return p_and_round[0][slot];
+    }
+
+    @Override
+    public int round(int slot) {
+        return (int) p_and_round[1][slot];
+    }
+
+    @Override
+    public long sizeInBytes() {
+        int slots = edges[0].length;
+        return 2 * (SampledGraphs.arrayBytes(slots, 4) + SampledGraphs.arrayBytes(slots, 8)) + 2 * SampledGraphs.arrayBytes(2, 4);
+    }
+}
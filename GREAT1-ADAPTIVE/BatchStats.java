@@ -0,0 +1,11 @@
+/**
+ * statistics of one batch processed by Estimator.processEdges
+ */
+public class BatchStats {
+
+    public int edges = 0;                                       // edges processed, self loops excluded
+    public int selfLoops = 0;                                   // self loops ignored
+    public int sampled = 0;                                     // edges stored in the reservoir
+    public int rounds = 0;                                      // computation rounds started
+    public long triangles = 0;                                  // triangles discovered
+}
@@ -0,0 +1,80 @@
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+
+
+/**
+ * write-combining layer over another store: updates are appended to a buffer, and a full buffer is sorted by vertex,
+ * the updates of a vertex are summed, and the sums are applied in vertex order, so the store sees one sequential pass
+ * instead of an update at a random vertex per triangle; every read flushes the buffer first, so counts are never stale
+ */
+public class BufferedLocalCountStore implements LocalCountStore {
+
+    private final LocalCountStore counts;                       // store the sums are flushed to
+    private final int[] vertices;                               // buffered updates
+    private final double[] deltas;
+    private final long[] order;                                 // vertex << 32 | position, sorted at a flush
+    private int size = 0;
+
+    /**
+     * @param counts store the buffered updates are flushed to
+     * @param capacity number of buffered updates
+     */
+    public BufferedLocalCountStore(LocalCountStore counts, int capacity) {
+        this.counts = counts;
+        this.vertices = new int[capacity];
+        this.deltas = new double[capacity];
+        this.order = new long[capacity];
+    }
+
+    @Override
+    public void add(int vertex, double delta) {
+        if (size == vertices.length) {
+            flush();
+        }
+        vertices[size] = vertex;
+        deltas[size] = delta;
+        size++;
+    }
+
+    @Override
+    public double get(int vertex) {
+        flush();
+        return counts.get(vertex);
+    }
+
+    @Override
+    public Int2DoubleMap toMap() {
+        flush();
+        return counts.toMap();
+    }
+
+    @Override
+    public void flush() {
+        if (size == 0) {
+            return;
+        }
+
+        for (int i = 0; i < size; i++) {
+            order[i] = ((long) vertices[i] << 32) | i;
+        }
+        LongArrays.radixSort(order, 0, size);
+
+        int i = 0;
+        while (i < size) {
+            int vertex = (int) (order[i] >>> 32);
+            double sum = 0;
+            do {
+                sum += deltas[(int) order[i]];
+                i++;
+            } while (i < size && (int) (order[i] >>> 32) == vertex);
+            counts.add(vertex, sum);
+        }
+        size = 0;
+        counts.flush();
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return counts.sizeInBytes() + SampledGraphs.arrayBytes(vertices.length, 4) + SampledGraphs.arrayBytes(deltas.length, 8) + SampledGraphs.arrayBytes(order.length, 8);
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * common neighbors found by SampledGraph.intersect, reused from one edge to the next
+ * entry i is the neighbor vertices[i], joined to src by the edge in slot srcSlots[i] and to dst by the edge in slot dstSlots[i]
+ */
+public class CommonNeighbors {
+
+    public int[] vertices = new int[16];                        // common neighbors
+    public int[] srcSlots = new int[16];                        // reservoir slots of the edges (src, neighbor)
+    public int[] dstSlots = new int[16];                        // reservoir slots of the edges (dst, neighbor)
+
+    /**
+     * make room for the given number of entries
+     * @param capacity number of entries, at most the smaller degree of the two nodes
+     */
+    public void ensureCapacity(int capacity) {
+        if (vertices.length < capacity) {
+            int length = Math.max(capacity, vertices.length * 2);
+            vertices = new int[length];
+            srcSlots = new int[length];
+            dstSlots = new int[length];
+        }
+    }
+}
@@ -0,0 +1,31 @@
+import java.io.*;
+
+
+/**
+ * maps the vertex IDs of an int edge source to dense IDs through a LongIdDictionary
+ */
+public class DictionaryEdgeSource implements EdgeSource {
+
+    private final EdgeSource source;
+    private final LongIdDictionary idDictionary;
+
+    public DictionaryEdgeSource(EdgeSource source, LongIdDictionary idDictionary) {
+        this.source = source;
+        this.idDictionary = idDictionary;
+    }
+
+    @Override
+    public int read(int[] src, int[] dst, int length) throws IOException {
+        int n = source.read(src, dst, length);
+        for (int i = 0; i < n; i++) {
+            src[i] = idDictionary.id(src[i]);
+            dst[i] = idDictionary.id(dst[i]);
+        }
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
@@ -0,0 +1,54 @@
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+
+import java.util.Arrays;
+
+
+/**
+ * local triangle counts in a float array indexed by vertex ID, half the memory of DenseLocalCountStore
+ * a float keeps about 7 significant digits, so small increments to a large count are rounded
+ */
+public class FloatLocalCountStore implements LocalCountStore {
+
+    private float[] counts;
+
+    /**
+     * @param expectedVertices expected number of vertices, the array grows past it if needed
+     */
+    public FloatLocalCountStore(int expectedVertices) {
+        this.counts = new float[Math.max(expectedVertices, 16)];
+    }
+
+    @Override
+    public void add(int vertex, double delta) {
+        if (vertex >= counts.length) {
+            counts = Arrays.copyOf(counts, (int) Math.min(Math.max(vertex + 1L, 2L * counts.length), Integer.MAX_VALUE - 8));
+        }
+        counts[vertex] += delta;
+    }
+
+    @Override
+    public double get(int vertex) {
+        return vertex < counts.length ? counts[vertex] : 0;
+    }
+
+    @Override
+    public Int2DoubleMap toMap() {
+        Int2DoubleOpenHashMap map = new Int2DoubleOpenHashMap();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                map.put(i, counts[i]);
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return SampledGraphs.arrayBytes(counts.length, 4);
+    }
+}
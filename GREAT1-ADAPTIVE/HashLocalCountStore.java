@@ -0,0 +1,35 @@
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+
+
+/**
+ * local triangle counts in a hash map, only the vertices in a triangle take space
+ */
+public class HashLocalCountStore implements LocalCountStore {
+
+    private final Int2DoubleOpenHashMap counts = new Int2DoubleOpenHashMap();
+
+    @Override
+    public void add(int vertex, double delta) {
+        counts.addTo(vertex, delta);
+    }
+
+    @Override
+    public double get(int vertex) {
+        return counts.get(vertex);
+    }
+
+    @Override
+    public Int2DoubleMap toMap() {
+        return counts;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return SampledGraphs.hashTableBytes(counts.size(), 4, 8);
+    }
+}
@@ -0,0 +1,161 @@
+import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+
+import java.util.ArrayDeque;
+
+
+/**
+ * sampled graph as a hash map from each node to a hash map of its neighbors and the slots of the edges to them
+ * containers emptied by remove or clear are pooled and reused for new nodes, so the sampling rounds do not allocate one per node
+ * a pooled container is trimmed back to the default capacity, a hub's table handed to a low-degree node would only ever grow;
+ * trimming allocates a default-sized table, so only recycling a container that grew past the default allocates
+ */
+public class HashSampledGraph implements SampledGraph {
+
+    private final Int2ObjectOpenHashMap<NeighborMap> neighbors = new Int2ObjectOpenHashMap<>();
+    private final ArrayDeque<NeighborMap> pool = new ArrayDeque<>();     // emptied maps, reused for new nodes
+
+    @Override
+    public void add(int src, int dst, int slot) {
+        neighbors(src).put(dst, slot);
+        neighbors(dst).put(src, slot);
+    }
+
+    @Override
+    public void remove(int src, int dst) {
+        NeighborMap map = neighbors.get(src);
+        if (map != null) {
+            map.remove(dst);
+            if (map.isEmpty()) {
+                recycle(neighbors.remove(src));
+            }
+        }
+
+        map = neighbors.get(dst);
+        if (map != null) {
+            map.remove(src);
+            if (map.isEmpty()) {
+                recycle(neighbors.remove(dst));
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        // recycle every container for the rebuild that follows
+        for (NeighborMap map : neighbors.values()) {
+            recycle(map);
+        }
+        neighbors.clear();
+    }
+
+    @Override
+    public int intersect(int src, int dst, CommonNeighbors common) {
+        Int2IntOpenHashMap srcMap = neighbors.get(src);
+        Int2IntOpenHashMap dstMap = neighbors.get(dst);
+
+        // if this edge has a new node, there cannot be any triangles
+        if (srcMap == null || dstMap == null) {
+            return 0;
+        }
+
+        // iterate the smaller map, probe the larger one
+        boolean swapped = srcMap.size() > dstMap.size();
+        if (swapped) {
+            Int2IntOpenHashMap temp = srcMap;
+            srcMap = dstMap;
+            dstMap = temp;
+        }
+        common.ensureCapacity(srcMap.size());
+        int[] srcSlots = swapped ? common.dstSlots : common.srcSlots;
+        int[] dstSlots = swapped ? common.srcSlots : common.dstSlots;
+
+        int found = 0;
+        ObjectIterator<Int2IntMap.Entry> entries = srcMap.int2IntEntrySet().fastIterator();
+        while (entries.hasNext()) {
+            Int2IntMap.Entry entry = entries.next();
+            int neighbor = entry.getIntKey();
+            int slot = dstMap.get(neighbor);
+            if (slot != -1) {
+                common.vertices[found] = neighbor;
+                srcSlots[found] = entry.getIntValue();
+                dstSlots[found] = slot;
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public long edges() {
+        long degrees = 0;
+        for (Int2IntOpenHashMap map : neighbors.values()) {
+            degrees += map.size();
+        }
+        return degrees / 2;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        long bytes = SampledGraphs.hashTableBytes(neighbors.size(), 4, 4);
+        for (NeighborMap map : neighbors.values()) {
+            bytes += SampledGraphs.hashTableCapacityBytes(map.capacity(), 4, 4);
+        }
+        for (NeighborMap map : pool) {
+            bytes += SampledGraphs.hashTableCapacityBytes(map.capacity(), 4, 4);
+        }
+        return bytes;
+    }
+
+    private NeighborMap neighbors(int node) {
+        NeighborMap map = neighbors.get(node);
+        if (map == null) {
+            map = pool.poll();
+            if (map == null) {
+                map = new NeighborMap();
+            }
+            neighbors.put(node, map);
+        }
+        return map;
+    }
+
+    /**
+     * empty the map, shrink its table back to the default capacity and pool it
+     */
+    private void recycle(NeighborMap map) {
+        map.reset();
+        pool.push(map);
+    }
+
+    /**
+     * neighbor map that reports the capacity of its table, clear keeps the table so the size alone understates it
+     */
+    private static final class NeighborMap extends Int2IntOpenHashMap {
+
+        private static final long serialVersionUID = 1L;
+        private static final int DEFAULT_CAPACITY = HashCommon.arraySize(Hash.DEFAULT_INITIAL_SIZE, Hash.DEFAULT_LOAD_FACTOR);
+
+        NeighborMap() {
+            defaultReturnValue(-1);
+        }
+
+        int capacity() {
+            return n;
+        }
+
+        /**
+         * empty the map and shrink its table to the default capacity, trim(int) of this fastutil version never shrinks
+         * a table still at the default capacity is kept, a larger one is replaced by a new default-sized table
+         */
+        void reset() {
+            clear();
+            if (n > DEFAULT_CAPACITY) {
+                rehash(DEFAULT_CAPACITY);
+            }
+        }
+    }
+}
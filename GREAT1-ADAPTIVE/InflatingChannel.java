@@ -0,0 +1,126 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+
+/**
+ * reads a gzip file as a channel of decompressed bytes
+ * inflating runs on a background thread that fills a fixed set of byte blocks ahead of the reader,
+ * so decompression overlaps with parsing and processing the edges
+ */
+public class InflatingChannel implements ReadableByteChannel {
+
+    private static final int BLOCK_SIZE = 1 << 20;             // decompressed bytes per block
+    private static final int BLOCKS = 8;                        // blocks inflated ahead of the reader
+
+    /**
+     * a block of decompressed bytes, length -1 marks the end of the file
+     */
+    private static class Block {
+        final byte[] data = new byte[BLOCK_SIZE];
+        int length;
+    }
+
+    private final BlockingQueue<Block> free = new ArrayBlockingQueue<>(BLOCKS);
+    private final BlockingQueue<Block> filled = new ArrayBlockingQueue<>(BLOCKS);
+    private final Thread inflater;
+    private volatile Throwable failure;                         // error raised by the inflater thread
+    private volatile boolean open = true;
+
+    private Block block;                                        // block being read
+    private int offset = 0;                                     // next byte of that block
+    private boolean eof = false;
+
+    public InflatingChannel(String gzipFile) throws IOException {
+        InputStream in = new GZIPInputStream(new FileInputStream(gzipFile), 1 << 16);
+        for (int i = 0; i < BLOCKS; i++) {
+            free.add(new Block());
+        }
+
+        this.inflater = new Thread(() -> inflate(in), "gzip-inflater");
+        inflater.setDaemon(true);
+        inflater.start();
+    }
+
+    /**
+     * inflater thread, fill free blocks until the end of the file
+     */
+    private void inflate(InputStream in) {
+        try (InputStream s = in) {
+            while (open) {
+                Block b = free.take();
+                int length = 0;
+                int n = 0;
+                while (length < BLOCK_SIZE && (n = s.read(b.data, length, BLOCK_SIZE - length)) != -1) {
+                    length += n;
+                }
+
+                if (length > 0) {
+                    b.length = length;
+                    filled.put(b);
+                    if (n != -1) {
+                        continue;
+                    }
+                    b = free.take();
+                }
+                b.length = -1;
+                filled.put(b);
+                return;
+            }
+        } catch (InterruptedException e) {
+            // channel closed
+        } catch (Throwable e) {
+            failure = e;
+            Block end = new Block();
+            end.length = -1;
+            filled.offer(end);
+        }
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (eof) {
+            return -1;
+        }
+
+        if (block == null || offset == block.length) {
+            if (block != null) {
+                free.add(block);
+            }
+            try {
+                block = filled.take();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("interrupted while waiting for decompressed bytes");
+            }
+            offset = 0;
+
+            if (block.length == -1) {
+                eof = true;
+                Throwable e = failure;
+                if (e != null) {
+                    throw e instanceof IOException ? (IOException) e : new IOException("gzip inflater failed", e);
+                }
+                return -1;
+            }
+        }
+
+        int n = Math.min(dst.remaining(), block.length - offset);
+        dst.put(block.data, offset, n);
+        offset += n;
+        return n;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+        inflater.interrupt();
+    }
+}
@@ -0,0 +1,16 @@
+/**
+ * intersection of two sorted arrays of distinct ints
+ */
+public interface IntersectionKernel {
+
+    /**
+     * @param a sorted array, the smaller one
+     * @param aSize number of values of a
+     * @param b sorted array
+     * @param bSize number of values of b
+     * @param aPos receives the positions in a of the common values, in ascending order
+     * @param bPos receives the positions in b of the common values
+     * @return number of common values
+     */
+    int intersect(int[] a, int aSize, int[] b, int bSize, int[] aPos, int[] bPos);
+}
@@ -0,0 +1,132 @@
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+
+
+/**
+ * maps external vertex IDs (any long) to dense int IDs 0, 1, 2, ... in order of first appearance
+ * open addressing with linear probing on a table of dense IDs, the keys are only stored once, in dense ID order,
+ * so a vertex costs about 13 bytes; storage is paged and can live off-heap in direct buffers
+ */
+public class LongIdDictionary {
+
+    private static final int PAGE_BITS = 24;                    // entries per page
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final boolean offHeap;                              // pages are direct buffers
+
+    private IntBuffer[] table;                                  // slot to dense ID + 1, 0 for an empty slot
+    private long tableMask;                                     // number of slots - 1
+    private long threshold;                                     // size that triggers a rehash
+
+    private LongBuffer[] keys = new LongBuffer[0];              // dense ID to external ID
+    private int size = 0;
+
+    /**
+     * @param offHeap keep the table and the keys in direct buffers instead of the Java heap
+     */
+    public LongIdDictionary(boolean offHeap) {
+        this.offHeap = offHeap;
+        allocateTable(1L << 16);
+    }
+
+    /**
+     * @param key external vertex ID
+     * @return dense ID of the given external ID, a new one if it is seen for the first time
+     */
+    public int id(long key) {
+        long slot = HashCommon.mix(key) & tableMask;
+        int entry;
+        while ((entry = table[(int) (slot >>> PAGE_BITS)].get((int) slot & PAGE_MASK)) != 0) {
+            if (key(entry - 1) == key) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+
+        if (size == Integer.MAX_VALUE - 1) {
+            throw new IllegalStateException("too many vertices for int IDs");
+        }
+        int id = size++;
+        if ((id & PAGE_MASK) == 0) {
+            LongBuffer[] grown = new LongBuffer[keys.length + 1];
+            System.arraycopy(keys, 0, grown, 0, keys.length);
+            grown[keys.length] = allocateLongs(PAGE_SIZE);
+            keys = grown;
+        }
+        keys[id >>> PAGE_BITS].put(id & PAGE_MASK, key);
+        table[(int) (slot >>> PAGE_BITS)].put((int) slot & PAGE_MASK, id + 1);
+
+        if (size > threshold) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * @param id dense ID
+     * @return external vertex ID of the given dense ID
+     */
+    public long key(int id) {
+        return keys[id >>> PAGE_BITS].get(id & PAGE_MASK);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return all dense IDs, ordered by their external IDs
+     */
+    public int[] idsByKey() {
+        long[] sortKeys = new long[size];
+        int[] ids = new int[size];
+        for (int i = 0; i < size; i++) {
+            sortKeys[i] = key(i);
+            ids[i] = i;
+        }
+        LongArrays.radixSortIndirect(ids, sortKeys, true);
+        return ids;
+    }
+
+    private void rehash() {
+        IntBuffer[] old = table;
+        long oldSlots = tableMask + 1;
+        allocateTable(oldSlots << 1);
+
+        for (long s = 0; s < oldSlots; s++) {
+            int entry = old[(int) (s >>> PAGE_BITS)].get((int) s & PAGE_MASK);
+            if (entry != 0) {
+                long slot = HashCommon.mix(key(entry - 1)) & tableMask;
+                while (table[(int) (slot >>> PAGE_BITS)].get((int) slot & PAGE_MASK) != 0) {
+                    slot = (slot + 1) & tableMask;
+                }
+                table[(int) (slot >>> PAGE_BITS)].put((int) slot & PAGE_MASK, entry);
+            }
+        }
+    }
+
+    private void allocateTable(long slots) {
+        int pages = (int) ((slots + PAGE_SIZE - 1) >>> PAGE_BITS);
+        table = new IntBuffer[pages];
+        for (int i = 0; i < pages; i++) {
+            table[i] = allocateInts((int) Math.min(PAGE_SIZE, slots));
+        }
+        tableMask = slots - 1;
+        threshold = (long) (slots * LOAD_FACTOR);
+    }
+
+    private IntBuffer allocateInts(int n) {
+        return offHeap ? ByteBuffer.allocateDirect(n * 4).order(ByteOrder.nativeOrder()).asIntBuffer() : IntBuffer.allocate(n);
+    }
+
+    private LongBuffer allocateLongs(int n) {
+        return offHeap ? ByteBuffer.allocateDirect(n * 8).order(ByteOrder.nativeOrder()).asLongBuffer() : LongBuffer.allocate(n);
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * intersection by a linear merge, or by galloping search of the larger array when the sizes are very different
+ */
+public class ScalarIntersection implements IntersectionKernel {
+
+    static final int GALLOP_RATIO = 32;                         // the larger array is galloped over when it is this many times larger
+
+    @Override
+    public int intersect(int[] a, int aSize, int[] b, int bSize, int[] aPos, int[] bPos) {
+        if (aSize == 0 || bSize == 0) {
+            return 0;
+        }
+        if (bSize / aSize >= GALLOP_RATIO) {
+            return gallop(a, aSize, b, bSize, aPos, bPos);
+        }
+        return merge(a, aSize, b, bSize, aPos, bPos);
+    }
+
+    /**
+     * linear merge of arrays of similar sizes
+     */
+    protected int merge(int[] a, int aSize, int[] b, int bSize, int[] aPos, int[] bPos) {
+        return merge(a, 0, aSize, b, 0, bSize, aPos, bPos, 0);
+    }
+
+    /**
+     * linear merge of a[i, aSize) and b[j, bSize), appending the common values after the first found ones
+     */
+    static int merge(int[] a, int i, int aSize, int[] b, int j, int bSize, int[] aPos, int[] bPos, int found) {
+        while (i < aSize && j < bSize) {
+            int x = a[i];
+            int y = b[j];
+            if (x < y) {
+                i++;
+            } else if (x > y) {
+                j++;
+            } else {
+                aPos[found] = i++;
+                bPos[found] = j++;
+                found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * look up each value of the small array in the large one, by exponential then binary search from the last position
+     */
+    static int gallop(int[] a, int aSize, int[] b, int bSize, int[] aPos, int[] bPos) {
+        int found = 0;
+        int low = 0;
+        for (int i = 0; i < aSize && low < bSize; i++) {
+            int x = a[i];
+
+            // exponential search for a range [low, high] with b[high] >= x
+            int step = 1;
+            int high = low;
+            while (high < bSize && b[high] < x) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            if (high >= bSize) {
+                high = bSize - 1;
+            }
+
+            // binary search for the first value >= x
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (b[mid] < x) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            if (low < bSize && b[low] == x) {
+                aPos[found] = i;
+                bPos[found] = low;
+                found++;
+                low++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,159 @@
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+
+import java.util.Arrays;
+
+
+/**
+ * sampled graph keeping the neighbors of each node in a sorted primitive array, with the slots in a parallel array,
+ * so triangles are found by an IntersectionKernel: VectorIntersection when it is built and the JVM runs with
+ * --add-modules jdk.incubator.vector, ScalarIntersection otherwise
+ */
+public class SortedSampledGraph implements SampledGraph {
+
+    private final Int2ObjectOpenHashMap<SortedNeighbors> neighbors = new Int2ObjectOpenHashMap<>();
+    private final IntersectionKernel kernel = loadKernel();
+
+    private int[] aPos = new int[16];                           // positions of the common neighbors in the smaller array
+    private int[] bPos = new int[16];                           // positions of the common neighbors in the larger array
+
+    @Override
+    public void add(int src, int dst, int slot) {
+        neighbors(src).put(dst, slot);
+        neighbors(dst).put(src, slot);
+    }
+
+    @Override
+    public void remove(int src, int dst) {
+        SortedNeighbors list = neighbors.get(src);
+        if (list != null && list.remove(dst) == 0) {
+            neighbors.remove(src);
+        }
+
+        list = neighbors.get(dst);
+        if (list != null && list.remove(src) == 0) {
+            neighbors.remove(dst);
+        }
+    }
+
+    @Override
+    public void clear() {
+        neighbors.clear();
+    }
+
+    @Override
+    public int intersect(int src, int dst, CommonNeighbors common) {
+        SortedNeighbors a = neighbors.get(src);
+        SortedNeighbors b = neighbors.get(dst);
+
+        // if this edge has a new node, there cannot be any triangles
+        if (a == null || b == null) {
+            return 0;
+        }
+
+        boolean swapped = a.size > b.size;
+        if (swapped) {
+            SortedNeighbors temp = a;
+            a = b;
+            b = temp;
+        }
+        common.ensureCapacity(a.size);
+        if (aPos.length < a.size) {
+            aPos = new int[Math.max(a.size, aPos.length * 2)];
+            bPos = new int[aPos.length];
+        }
+        int[] aSlots = swapped ? common.dstSlots : common.srcSlots;
+        int[] bSlots = swapped ? common.srcSlots : common.dstSlots;
+
+        int found = kernel.intersect(a.keys, a.size, b.keys, b.size, aPos, bPos);
+        for (int i = 0; i < found; i++) {
+            common.vertices[i] = a.keys[aPos[i]];
+            aSlots[i] = a.slots[aPos[i]];
+            bSlots[i] = b.slots[bPos[i]];
+        }
+        return found;
+    }
+
+    @Override
+    public long edges() {
+        long degrees = 0;
+        for (SortedNeighbors list : neighbors.values()) {
+            degrees += list.size;
+        }
+        return degrees / 2;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        long bytes = SampledGraphs.hashTableBytes(neighbors.size(), 4, 4);
+        for (SortedNeighbors list : neighbors.values()) {
+            bytes += 24 + SampledGraphs.arrayBytes(list.keys.length, 4) * 2;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return name of the intersection kernel in use
+     */
+    public String kernelName() {
+        return kernel.getClass().getSimpleName();
+    }
+
+    private SortedNeighbors neighbors(int node) {
+        SortedNeighbors list = neighbors.get(node);
+        if (list == null) {
+            list = new SortedNeighbors();
+            neighbors.put(node, list);
+        }
+        return list;
+    }
+
+    private static IntersectionKernel loadKernel() {
+        try {
+            return (IntersectionKernel) Class.forName("VectorIntersection").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // not built, or the vector module is not available
+            return new ScalarIntersection();
+        }
+    }
+
+    /**
+     * sorted neighbors of a node and the slots of the edges to them
+     */
+    private static final class SortedNeighbors {
+
+        private int[] keys = new int[4];
+        private int[] slots = new int[4];
+        private int size = 0;
+
+        void put(int neighbor, int slot) {
+            int i = Arrays.binarySearch(keys, 0, size, neighbor);
+            if (i >= 0) {
+                slots[i] = slot;
+                return;
+            }
+            i = -i - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            System.arraycopy(keys, i, keys, i + 1, size - i);
+            System.arraycopy(slots, i, slots, i + 1, size - i);
+            keys[i] = neighbor;
+            slots[i] = slot;
+            size++;
+        }
+
+        /**
+         * @return number of neighbors left
+         */
+        int remove(int neighbor) {
+            int i = Arrays.binarySearch(keys, 0, size, neighbor);
+            if (i >= 0) {
+                System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+                System.arraycopy(slots, i + 1, slots, i, size - i - 1);
+                size--;
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * intersection with SIMD block comparison, built separately on JDK 17+ (see README), SortedSampledGraph falls back to ScalarIntersection without it
+ * a block of a is compared with every value of a block of b at once, then the block with the smaller last value is skipped,
+ * the tails shorter than a block are merged by ScalarIntersection
+ */
+public class VectorIntersection extends ScalarIntersection {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    @Override
+    protected int merge(int[] a, int aSize, int[] b, int bSize, int[] aPos, int[] bPos) {
+        int found = 0;
+        int i = 0;
+        int j = 0;
+        while (i + LANES <= aSize && j + LANES <= bSize) {
+            IntVector block = IntVector.fromArray(SPECIES, a, i);
+            for (int r = 0; r < LANES; r++) {
+                VectorMask<Integer> equal = block.eq(b[j + r]);
+                if (equal.anyTrue()) {
+                    aPos[found] = i + equal.firstTrue();
+                    bPos[found] = j + r;
+                    found++;
+                }
+            }
+
+            int aLast = a[i + LANES - 1];
+            int bLast = b[j + LANES - 1];
+            if (aLast <= bLast) {
+                i += LANES;
+            }
+            if (bLast <= aLast) {
+                j += LANES;
+            }
+        }
+        return merge(a, i, aSize, b, j, bSize, aPos, bPos, found);
+    }
+}
@@ -0,0 +1,121 @@
+import java.io.*;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+
+/**
+ * reads a binary edge file through memory-mapped windows of the file
+ *
+ * file layout (little-endian):
+ *   bytes 0-7    magic "GREATBIN"
+ *   bytes 8-11   format version
+ *   bytes 12-15  reserved, 0
+ *   bytes 16-23  number of edges, -1 if unknown
+ *   bytes 24-    packed (src, dst) int pairs
+ */
+public class BinaryEdgeSource implements EdgeSource {
+
+    public static final byte[] MAGIC = "GREATBIN".getBytes(StandardCharsets.US_ASCII);
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 24;
+    public static final int EDGE_SIZE = 8;
+
+    private static final long WINDOW_SIZE = 1L << 30;          // bytes mapped at once, a multiple of EDGE_SIZE
+
+    private final FileChannel channel;
+    private final long end;                                     // file offset after the last edge
+    private long windowEnd;                                     // file offset after the current window
+    private MappedByteBuffer window;
+
+    public BinaryEdgeSource(String inputGraphFile) throws IOException {
+        this.channel = FileChannel.open(Paths.get(inputGraphFile), StandardOpenOption.READ);
+
+        long edges = readHeader(channel, inputGraphFile);
+        long available = (channel.size() - HEADER_SIZE) / EDGE_SIZE;
+        if (edges < 0) {
+            edges = available;
+        } else if (edges > available) {
+            channel.close();
+            throw new IOException(inputGraphFile + " is truncated: header declares " + edges + " edges, file holds " + available);
+        }
+
+        this.end = HEADER_SIZE + edges * EDGE_SIZE;
+        this.windowEnd = HEADER_SIZE;
+    }
+
+    /**
+     * check whether the given file starts with the binary edge file magic
+     * @param inputGraphFile graph file path
+     */
+    public static boolean isBinaryEdgeFile(String inputGraphFile) throws IOException {
+        try (InputStream in = new FileInputStream(inputGraphFile)) {
+            byte[] magic = new byte[MAGIC.length];
+            int read = 0;
+            while (read < magic.length) {
+                int n = in.read(magic, read, magic.length - read);
+                if (n == -1) {
+                    return false;
+                }
+                read += n;
+            }
+            return Arrays.equals(magic, MAGIC);
+        }
+    }
+
+    /**
+     * validate the header of a binary edge file
+     * @return number of edges declared in the header, -1 if unknown
+     */
+    private static long readHeader(FileChannel channel, String inputGraphFile) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            throw new IOException(inputGraphFile + " is not a binary edge file");
+        }
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header.get(i) != MAGIC[i]) {
+                throw new IOException(inputGraphFile + " is not a binary edge file");
+            }
+        }
+        int version = header.getInt(8);
+        if (version != VERSION) {
+            throw new IOException(inputGraphFile + " has unsupported binary edge format version " + version);
+        }
+        return header.getLong(16);
+    }
+
+    @Override
+    public int read(int[] src, int[] dst, int length) throws IOException {
+        if (window == null || !window.hasRemaining()) {
+            if (windowEnd >= end) {
+                return -1;
+            }
+            // map the next window, files larger than 2 GB are read window by window
+            long position = windowEnd;
+            long size = Math.min(WINDOW_SIZE, end - position);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+            window.order(ByteOrder.LITTLE_ENDIAN);
+            windowEnd = position + size;
+        }
+
+        MappedByteBuffer buffer = window;
+        int n = Math.min(length, buffer.remaining() / EDGE_SIZE);
+        for (int i = 0; i < n; i++) {
+            src[i] = buffer.getInt();
+            dst[i] = buffer.getInt();
+        }
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
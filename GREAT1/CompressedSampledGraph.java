@@ -0,0 +1,423 @@
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+
+import java.util.Arrays;
+
+
+/**
+ * memory-lean sampled graph: the neighbors of a node are packed in a byte array, sorted and delta + varint encoded
+ * in blocks of BLOCK_SIZE entries (each entry is the neighbor, as a gap to the previous one, and the slot of the edge),
+ * the first neighbor of a block is stored in full so a lookup only decodes one block
+ * inserts and removals go to small sorted buffers first, the packed array is rebuilt when a buffer is full,
+ * buffers grow with the node up to 1/8 of its packed entries so a rebuild costs O(1) amortized decoded entries;
+ * nodes with fewer than BUFFERED_MIN entries, most of them, have no buffers and are rebuilt on every change
+ */
+public class CompressedSampledGraph implements SampledGraph {
+
+    private static final int BLOCK_SIZE = 64;                   // entries per block
+    private static final int BUFFERED_MIN = 16;                 // packed entries of a node with buffers, at least
+    private static final int BUFFER_MIN = 4;                    // entries of a buffer, at least
+    private static final byte[] NO_DATA = new byte[0];
+
+    private final Int2ObjectOpenHashMap<Neighbors> neighbors = new Int2ObjectOpenHashMap<>();
+
+    private int[] keysA = new int[64];                          // decoded neighbors of the smaller node
+    private int[] slotsA = new int[64];
+    private int[] keysB = new int[64];                          // decoded neighbors of the larger node
+    private int[] slotsB = new int[64];
+    private int[] aPos = new int[64];
+    private int[] bPos = new int[64];
+    private byte[] bytes = new byte[1024];                      // encoding buffer
+    private final int[] changeAdded = new int[2];               // buffers of a node without buffers, for the change that rebuilds it
+    private final int[] changeRemoved = new int[1];
+    private int cursor;                                         // read position of readVarint
+
+    /**
+     * neighbors of a node
+     */
+    private static final class Neighbors {
+
+        byte[] data = NO_DATA;                                  // packed entries
+        int packed = 0;                                         // number of packed entries
+        int[] blocks = null;                                    // first neighbor and offset of each block, null for a single block
+        int[] added = null;                                     // inserted (neighbor, slot) pairs, sorted by neighbor
+        int addedCount = 0;
+        int[] removed = null;                                   // neighbors removed from the packed entries, sorted
+        int removedCount = 0;
+
+        int size() {
+            return packed - removedCount + addedCount;
+        }
+
+        /**
+         * @return entries of each buffer, 0 for a node without buffers
+         */
+        int bufferCapacity() {
+            return packed < BUFFERED_MIN ? 0 : Math.max(BUFFER_MIN, packed >>> 3);
+        }
+    }
+
+    @Override
+    public void add(int src, int dst, int slot) {
+        put(neighbors(src), dst, slot);
+        put(neighbors(dst), src, slot);
+    }
+
+    @Override
+    public void remove(int src, int dst) {
+        Neighbors list = neighbors.get(src);
+        if (list != null && remove(list, dst) == 0) {
+            neighbors.remove(src);
+        }
+
+        list = neighbors.get(dst);
+        if (list != null && remove(list, src) == 0) {
+            neighbors.remove(dst);
+        }
+    }
+
+    @Override
+    public void clear() {
+        neighbors.clear();
+    }
+
+    @Override
+    public int intersect(int src, int dst, CommonNeighbors common) {
+        Neighbors a = neighbors.get(src);
+        Neighbors b = neighbors.get(dst);
+
+        // if this edge has a new node, there cannot be any triangles
+        if (a == null || b == null) {
+            return 0;
+        }
+
+        boolean swapped = a.size() > b.size();
+        if (swapped) {
+            Neighbors temp = a;
+            a = b;
+            b = temp;
+        }
+        int aSize = decode(a, true);
+        common.ensureCapacity(aSize);
+        int[] aSlots = swapped ? common.dstSlots : common.srcSlots;
+        int[] bSlots = swapped ? common.srcSlots : common.dstSlots;
+
+        int found = 0;
+        if (b.size() / aSize >= ScalarIntersection.GALLOP_RATIO) {
+            // look up the few neighbors of a in the blocks of b
+            for (int i = 0; i < aSize; i++) {
+                int slot = get(b, keysA[i]);
+                if (slot != -1) {
+                    common.vertices[found] = keysA[i];
+                    aSlots[found] = slotsA[i];
+                    bSlots[found] = slot;
+                    found++;
+                }
+            }
+            return found;
+        }
+
+        int bSize = decode(b, false);
+        if (aPos.length < aSize) {
+            aPos = new int[Math.max(aSize, aPos.length * 2)];
+            bPos = new int[aPos.length];
+        }
+        found = ScalarIntersection.merge(keysA, 0, aSize, keysB, 0, bSize, aPos, bPos, 0);
+        for (int i = 0; i < found; i++) {
+            common.vertices[i] = keysA[aPos[i]];
+            aSlots[i] = slotsA[aPos[i]];
+            bSlots[i] = slotsB[bPos[i]];
+        }
+        return found;
+    }
+
+    @Override
+    public long edges() {
+        long degrees = 0;
+        for (Neighbors list : neighbors.values()) {
+            degrees += list.size();
+        }
+        return degrees / 2;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        long bytes = SampledGraphs.hashTableBytes(neighbors.size(), 4, 4);
+        for (Neighbors list : neighbors.values()) {
+            bytes += 40 + SampledGraphs.arrayBytes(list.data.length, 1);
+            if (list.added != null) {
+                bytes += SampledGraphs.arrayBytes(list.added.length, 4);
+            }
+            if (list.blocks != null) {
+                bytes += SampledGraphs.arrayBytes(list.blocks.length, 4);
+            }
+            if (list.removed != null) {
+                bytes += SampledGraphs.arrayBytes(list.removed.length, 4);
+            }
+        }
+        return bytes;
+    }
+
+    private Neighbors neighbors(int node) {
+        Neighbors list = neighbors.get(node);
+        if (list == null) {
+            list = new Neighbors();
+            neighbors.put(node, list);
+        }
+        return list;
+    }
+
+    /**
+     * @return slot of the edge to the given neighbor, -1 if there is none
+     */
+    private int get(Neighbors list, int neighbor) {
+        int i = searchPairs(list.added, list.addedCount, neighbor);
+        if (i >= 0) {
+            return list.added[2 * i + 1];
+        }
+        if (list.removedCount > 0 && Arrays.binarySearch(list.removed, 0, list.removedCount, neighbor) >= 0) {
+            return -1;
+        }
+        return getPacked(list, neighbor);
+    }
+
+    private void put(Neighbors list, int neighbor, int slot) {
+        int i = searchPairs(list.added, list.addedCount, neighbor);
+        if (i >= 0) {
+            list.added[2 * i + 1] = slot;
+            return;
+        }
+        if ((list.removedCount == 0 || Arrays.binarySearch(list.removed, 0, list.removedCount, neighbor) < 0)
+                && getPacked(list, neighbor) != -1) {
+            // the edge is sampled again: hide the packed entry, the new slot goes to the buffer
+            addRemoved(list, neighbor);
+        }
+
+        i = -i - 1;
+        if (list.added == null) {
+            list.added = changeAdded;
+        } else if (list.addedCount * 2 == list.added.length) {
+            list.added = Arrays.copyOf(list.added, list.added.length * 2);
+        }
+        System.arraycopy(list.added, 2 * i, list.added, 2 * i + 2, 2 * (list.addedCount - i));
+        list.added[2 * i] = neighbor;
+        list.added[2 * i + 1] = slot;
+        list.addedCount++;
+
+        if (list.addedCount >= list.bufferCapacity()) {
+            rebuild(list);
+        }
+    }
+
+    /**
+     * @return number of neighbors left
+     */
+    private int remove(Neighbors list, int neighbor) {
+        int i = searchPairs(list.added, list.addedCount, neighbor);
+        if (i >= 0) {
+            System.arraycopy(list.added, 2 * i + 2, list.added, 2 * i, 2 * (list.addedCount - i - 1));
+            list.addedCount--;
+        } else if ((list.removedCount == 0 || Arrays.binarySearch(list.removed, 0, list.removedCount, neighbor) < 0)
+                && getPacked(list, neighbor) != -1) {
+            addRemoved(list, neighbor);
+            if (list.removedCount >= list.bufferCapacity()) {
+                rebuild(list);
+            }
+        }
+        return list.size();
+    }
+
+    private void addRemoved(Neighbors list, int neighbor) {
+        if (list.removed == null) {
+            list.removed = list.bufferCapacity() == 0 ? changeRemoved : new int[BUFFER_MIN];
+        } else if (list.removedCount == list.removed.length) {
+            list.removed = Arrays.copyOf(list.removed, list.removedCount * 2);
+        }
+        int i = -Arrays.binarySearch(list.removed, 0, list.removedCount, neighbor) - 1;
+        System.arraycopy(list.removed, i, list.removed, i + 1, list.removedCount - i);
+        list.removed[i] = neighbor;
+        list.removedCount++;
+    }
+
+    /**
+     * binary search of a neighbor in sorted (neighbor, slot) pairs
+     * @return index of the pair, or -(insertion point) - 1
+     */
+    private static int searchPairs(int[] pairs, int count, int neighbor) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int key = pairs[2 * mid];
+            if (key < neighbor) {
+                low = mid + 1;
+            } else if (key > neighbor) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * look up a neighbor in the packed entries, decoding only the block that can hold it
+     * @return slot of the edge to the given neighbor, -1 if there is none
+     */
+    private int getPacked(Neighbors list, int neighbor) {
+        if (list.packed == 0) {
+            return -1;
+        }
+        int block = 0;
+        if (list.blocks != null) {
+            // last block whose first neighbor is <= neighbor
+            int low = 0;
+            int high = list.blocks.length / 2 - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (list.blocks[2 * mid] <= neighbor) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            block = low;
+            cursor = list.blocks[2 * block + 1];
+        } else {
+            cursor = 0;
+        }
+
+        int entries = Math.min(BLOCK_SIZE, list.packed - block * BLOCK_SIZE);
+        int key = 0;
+        for (int e = 0; e < entries; e++) {
+            int value = readVarint(list.data);
+            key = e == 0 ? (value >>> 1) ^ -(value & 1) : key + value;
+            int slot = readVarint(list.data);
+            if (key >= neighbor) {
+                return key == neighbor ? slot : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * decode all neighbors of a node, in order, into the scratch arrays A or B
+     * @return number of neighbors
+     */
+    private int decode(Neighbors list, boolean intoA) {
+        int size = list.size();
+        int[] keys = intoA ? keysA : keysB;
+        int[] slots = intoA ? slotsA : slotsB;
+        if (keys.length < size) {
+            keys = new int[Math.max(size, keys.length * 2)];
+            slots = new int[keys.length];
+            if (intoA) {
+                keysA = keys;
+                slotsA = slots;
+            } else {
+                keysB = keys;
+                slotsB = slots;
+            }
+        }
+
+        int count = 0;
+        int r = 0;                                              // next removed neighbor
+        int a = 0;                                              // next added pair
+        int key = 0;
+        cursor = 0;
+        for (int e = 0; e < list.packed; e++) {
+            int value = readVarint(list.data);
+            key = e % BLOCK_SIZE == 0 ? (value >>> 1) ^ -(value & 1) : key + value;
+            int slot = readVarint(list.data);
+
+            while (a < list.addedCount && list.added[2 * a] < key) {
+                keys[count] = list.added[2 * a];
+                slots[count++] = list.added[2 * a + 1];
+                a++;
+            }
+            while (r < list.removedCount && list.removed[r] < key) {
+                r++;
+            }
+            if (r < list.removedCount && list.removed[r] == key) {
+                r++;
+                continue;
+            }
+            keys[count] = key;
+            slots[count++] = slot;
+        }
+        for (; a < list.addedCount; a++) {
+            keys[count] = list.added[2 * a];
+            slots[count++] = list.added[2 * a + 1];
+        }
+        return count;
+    }
+
+    /**
+     * pack all neighbors of a node again, emptying both buffers
+     */
+    private void rebuild(Neighbors list) {
+        int count = decode(list, true);
+
+        if (bytes.length < count * 10) {
+            bytes = new byte[count * 10];
+        }
+        int blockCount = (count + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        int[] blocks = blockCount > 1 ? new int[2 * blockCount] : null;
+        int pos = 0;
+        for (int e = 0; e < count; e++) {
+            int key = keysA[e];
+            if (e % BLOCK_SIZE == 0) {
+                if (blocks != null) {
+                    blocks[2 * (e / BLOCK_SIZE)] = key;
+                    blocks[2 * (e / BLOCK_SIZE) + 1] = pos;
+                }
+                pos = writeVarint(bytes, pos, (key << 1) ^ (key >> 31));
+            } else {
+                pos = writeVarint(bytes, pos, key - keysA[e - 1]);
+            }
+            pos = writeVarint(bytes, pos, slotsA[e]);
+        }
+
+        list.data = Arrays.copyOf(bytes, pos);
+        list.packed = count;
+        list.blocks = blocks;
+        list.addedCount = 0;
+        list.removedCount = 0;
+        list.removed = null;
+        int capacity = list.bufferCapacity();
+        if (capacity == 0) {
+            list.added = null;
+        } else if (list.added == null || list.added == changeAdded || list.added.length < 2 * capacity || list.added.length > 4 * capacity) {
+            list.added = new int[2 * capacity];
+        }
+    }
+
+    /**
+     * read an unsigned varint at the cursor, moving the cursor past it
+     */
+    private int readVarint(byte[] data) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[cursor++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * write an int as an unsigned varint
+     * @return position after the varint
+     */
+    private static int writeVarint(byte[] data, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            data[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        data[pos++] = (byte) value;
+        return pos;
+    }
+}
@@ -1,9 +1,6 @@
 import it.unimi.dsi.fastutil.doubles.DoubleOpenHashSet;
 import it.unimi.dsi.fastutil.ints.*;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
 import java.util.Random;
 
 import java.io.*;
@@ -12,19 +9,24 @@ import java.io.*;
 
 public class Estimator {
 
-    private Int2ObjectOpenHashMap<IntOpenHashSet> neighbors = new Int2ObjectOpenHashMap<>();  // graph composed of the sampled edges
+    private SampledGraph neighbors = new HashSetSampledGraph();  // graph composed of the sampled edges
+    private final CommonNeighbors common = new CommonNeighbors();  // common neighbors of the edge being counted
 
-    private Int2DoubleOpenHashMap nodeToCount = new Int2DoubleOpenHashMap(); // local triangle counts
+    private LocalCountStore nodeToCount = new HashLocalCountStore();         // local triangle counts, see LocalCountStores
+    private boolean localCounts = true;                                      // false in the global scope, only the global count is kept
+    private long[] watched = null;                                           // bitmap of the vertices whose local counts are kept, null for all
+    private long[] watchedSeen = null;                                       // bitmap of the watched vertices that appeared in the stream
+    private TopKLocalCountStore top = null;                                  // vertices with the largest local counts, null if not tracked
     private double globalTriangle = 0;                           // global triangles
     private int maxID = -1;                                      // vertex ID
+    private LongIdDictionary idDictionary = null;                // external IDs of the dense vertex IDs, null if IDs are not mapped
 
     private int[][] reservoir;
     private int k;                                               // size of the reservoir
     private double t = 0;                                        // number of streaming edges processed so far
     private int next_slot_index = 0;                             // for top-k edges in reservoir sampling
     private int empty_slot = 0;                                  // current empty slot of the reservoir
-    private int[] delete_index;                                  // position of the deleted edges in reservoir
-    private int[] remain_index;                                  // position of the remaining edges in reservoir
+    private int[] slot_order;                                    // reservoir slots in random order, the first N are emptied this round and the rest remain
     
     private long discoverd_triangles = 0;
 
@@ -33,8 +35,6 @@ public class Estimator {
     private double weight = 1;                                   // probability of a triangle
     private double alpha;                                        // edge discard rate
     private double survive_rate;                                 // survive probability of an edge, 1-alpha
-    private double[] survive_rate_array = new double[10000];     // cache of the (1-alpha)^r, accelerate the calculation of the probability
-    private List<Integer> numbers = new ArrayList<>();           // for generating the random index
     
     private final Random random = new Random();
 
@@ -48,12 +48,10 @@ public class Estimator {
         this.alpha = alpha;
         this.N = (int) (k * alpha);
 
+        slot_order = new int[k];
         for (int i = 0; i < k; i++) {
-            numbers.add(i);
+            slot_order[i] = i;
         }
-
-        delete_index = new int[N];
-        remain_index = new int[k - N];
     }
 
 
@@ -87,7 +85,7 @@ public class Estimator {
             reservoir[0][next_slot_index] = src;
             reservoir[1][next_slot_index] = dst;
 
-            sample(src, dst);
+            sample(src, dst, next_slot_index);
             next_slot_index++;
 
         } else {
@@ -95,92 +93,159 @@ public class Estimator {
             if (empty_slot == 0) {
                 // reservoir doesn't have empty slot now, we need to randomly discard N edges
                 // update triangles probability
-                cur_round++;
-                cur_sample_p = cur_sample_p * (1 - alpha);
-                weight = cur_sample_p * cur_sample_p;
+                nextRound();
+            }
 
+            // if there are still have some slots for coming edges, keep sampling
+            if (empty_slot > 0) {
 
-                randomIndex();
+                double randomValue = random.nextDouble();
+                if (randomValue < cur_sample_p) {
 
+                    // sample the coming edge in the empty slot
+                    int insertIndex = slot_order[empty_slot - 1];
+                    reservoir[0][insertIndex] = src;
+                    reservoir[1][insertIndex] = dst;
 
-                if (alpha <= 0.5) {
-                    // remove edges
-                    for (int i = 0; i < N; i++) {
-                        int index_tobeRemove = delete_index[i];
+                    sample(src, dst, insertIndex);
+                    empty_slot--;
 
-                        int src_tobeRemove = reservoir[0][index_tobeRemove];
-                        int dst_tobeRemove = reservoir[1][index_tobeRemove];
+                }
 
-                        deleteEdge(src_tobeRemove, dst_tobeRemove);
-                    }
+            } else return;
+        }
 
-                } else {
-                    //when alpha > 0.5, save the remaining would be faster
 
-                    Int2ObjectOpenHashMap<IntOpenHashSet> temp_neighbors = new Int2ObjectOpenHashMap<>();
+    }
+    
+    /**
+     * process a batch of edges in the given order, with the same result as calling processEdge on each of them
+     * the phase of the reservoir and the sampling probability are only re-read at round transitions
+     * @param src source nodes of the edges
+     * @param dst destination nodes of the edges
+     * @param offset index of the first edge of the batch
+     * @param length number of edges of the batch
+     * @return statistics of the batch
+     */
+    public BatchStats processEdges(int[] src, int[] dst, int offset, int length) {
+        BatchStats stats = new BatchStats();
+        long triangles = discoverd_triangles;
+        int batchMaxID = maxID;
+        int end = offset + length;
+        int i = offset;
+
+        // top-k edges in reservoir sampling
+        for (; i < end && t < k; i++) {
+            int u = src[i];
+            int v = dst[i];
+            if (u == v) { //ignore self loop
+                stats.selfLoops++;
+                continue;
+            }
 
-                    int remaining = k - N;
+            t++;
+            batchMaxID = Math.max(batchMaxID, Math.max(u, v));
 
-                    for (int i = 0; i < remaining; i++) {
-                        int index_tobeRemain = remain_index[i];
+            count(u, v);
 
-                        int src_tobeRemain = reservoir[0][index_tobeRemain];
-                        int dst_tobeRemain = reservoir[1][index_tobeRemain];
+            reservoir[0][next_slot_index] = u;
+            reservoir[1][next_slot_index] = v;
 
-                        temp_neighbors.computeIfAbsent(src_tobeRemain, k -> new IntOpenHashSet())
-                                .add(dst_tobeRemain);
+            sample(u, v, next_slot_index);
+            next_slot_index++;
+            stats.sampled++;
+        }
 
-                        temp_neighbors.computeIfAbsent(dst_tobeRemain, k -> new IntOpenHashSet())
-                                .add(src_tobeRemain);
+        // the sampling probability only changes at round transitions
+        double sample_p = cur_sample_p;
+        for (; i < end; i++) {
+            int u = src[i];
+            int v = dst[i];
+            if (u == v) { //ignore self loop
+                stats.selfLoops++;
+                continue;
+            }
 
-                    }
+            t++;
+            batchMaxID = Math.max(batchMaxID, Math.max(u, v));
 
-                    neighbors = temp_neighbors;
-                }
+            count(u, v);
 
+            if (empty_slot == 0) {
+                nextRound();
+                sample_p = cur_sample_p;
+                stats.rounds++;
+            }
 
-                empty_slot = N;
+            if (empty_slot > 0 && random.nextDouble() < sample_p) {
+                int insertIndex = slot_order[empty_slot - 1];
+                reservoir[0][insertIndex] = u;
+                reservoir[1][insertIndex] = v;
 
+                sample(u, v, insertIndex);
+                empty_slot--;
+                stats.sampled++;
             }
+        }
 
-            // if there are still have some slots for coming edges, keep sampling
-            if (empty_slot > 0) {
+        maxID = batchMaxID;
+        stats.edges = length - stats.selfLoops;
+        stats.triangles = discoverd_triangles - triangles;
+        return stats;
+    }
 
-                double randomValue = random.nextDouble();
-                if (randomValue < cur_sample_p) {
+    /**
+     * start a new computation round, the reservoir is full and N edges are randomly discarded
+     */
+    private void nextRound() {
+        cur_round++;
+        cur_sample_p = cur_sample_p * (1 - alpha);
+        weight = cur_sample_p * cur_sample_p;
 
-                    // sample the coming edge in the empty slot
-                    int insertIndex = delete_index[empty_slot - 1];
-                    reservoir[0][insertIndex] = src;
-                    reservoir[1][insertIndex] = dst;
 
-                    sample(src, dst);
-                    empty_slot--;
+        randomIndex();
 
-                }
 
-            } else return;
+        if (alpha <= 0.5) {
+            // remove edges
+            for (int i = 0; i < N; i++) {
+                int index_tobeRemove = slot_order[i];
+
+                int src_tobeRemove = reservoir[0][index_tobeRemove];
+                int dst_tobeRemove = reservoir[1][index_tobeRemove];
+
+                deleteEdge(src_tobeRemove, dst_tobeRemove);
+            }
+
+        } else {
+            //when alpha > 0.5, save the remaining would be faster
+
+            neighbors.clear();
+
+            int remaining = k - N;
+
+            for (int i = 0; i < remaining; i++) {
+                int index_tobeRemain = slot_order[N + i];
+
+                int src_tobeRemain = reservoir[0][index_tobeRemain];
+                int dst_tobeRemain = reservoir[1][index_tobeRemain];
+
+                neighbors.add(src_tobeRemain, dst_tobeRemain, index_tobeRemain);
+            }
         }
 
 
+        empty_slot = N;
     }
-    
+
     /**
      * sample an edge to the subgraph
      * @param src source node of the given edge
      * @param dst destination node of the given edge
+     * @param storeIndex reservoir index of the given edge
      */
-    private void sample(int src, int dst) {
-
-        if(!neighbors.containsKey(src)) {
-            neighbors.put(src, new IntOpenHashSet());
-        }
-        neighbors.get(src).add(dst);
-
-        if(!neighbors.containsKey(dst)) {
-            neighbors.put(dst, new IntOpenHashSet());
-        }
-        neighbors.get(dst).add(src);
+    private void sample(int src, int dst, int storeIndex) {
+        neighbors.add(src, dst, storeIndex);
     }
     
     /**
@@ -189,22 +254,7 @@ public class Estimator {
      * @param dst destination node of the given edge
      */
     private void deleteEdge(int src, int dst) {
-        IntOpenHashSet map = neighbors.get(src);
-        if (map != null) {
-            map.remove(dst);
-            if (map.isEmpty()) {
-                neighbors.remove(src);
-            }
-        }
-
-        map = neighbors.get(dst);
-        if (map != null) {
-            map.remove(src);
-            if (map.isEmpty()) {
-                neighbors.remove(dst);
-            }
-        }
-
+        neighbors.remove(src, dst);
     }
 
     /**
@@ -213,78 +263,219 @@ public class Estimator {
      * @param dst destination node of the given edge
      */
     private void count(int src, int dst) {
-
-        // if this edge has a new node, there cannot be any triangles
-        if(!neighbors.containsKey(src) || !neighbors.containsKey(dst)) {
-            return;
+        if (watchedSeen != null) {
+            see(src);
+            see(dst);
         }
 
-        // source node to neighbors
-        IntOpenHashSet srcMap = neighbors.get(src);
-
-        // destination node to neighbors
-        IntOpenHashSet dstMap = neighbors.get(dst);
-
-        if(srcMap.size() > dstMap.size()) {
-            IntOpenHashSet temp = srcMap;
-            srcMap = dstMap;
-            dstMap = temp;
+        // find common neighborhood, there is none if this edge has a new node
+        int found = neighbors.intersect(src, dst, common);
+        if (found == 0) {
+            return;
         }
 
         // the sum of counts increased
         double countSum = 0;
-        // find common neighborhood and update counter
-        for(int neighbor : srcMap) {
-            if (dstMap.contains(neighbor)) {
-                discoverd_triangles++;              // algorithm detect a triangle
 
-                double count = 1 / weight;
+        // update counter
+        for (int i = 0; i < found; i++) {
+            int neighbor = common.vertices[i];
+            discoverd_triangles++;              // algorithm detect a triangle
 
-                countSum += count;
-                nodeToCount.addTo(neighbor, count); // update the local triangle count of the common neighbor
+            double count = 1 / weight;
+
+            countSum += count;
+            if (localCounts) {
+                addLocal(neighbor, count); // update the local triangle count of the common neighbor
             }
         }
 
+
         if(countSum > 0) {
-            nodeToCount.addTo(src, countSum); // update the local triangle count of the source node
-            nodeToCount.addTo(dst, countSum); // update the local triangle count of the destination node
+            if (localCounts) {
+                addLocal(src, countSum); // update the local triangle count of the source node
+                addLocal(dst, countSum); // update the local triangle count of the destination node
+            }
             globalTriangle += countSum;       // update the global triangle count
         }
     }
 
+    /**
+     * add to the local triangle count of a vertex, unless the watch scope leaves it out
+     * @param vertex dense vertex ID
+     * @param count count added
+     */
+    private void addLocal(int vertex, double count) {
+        if (watched == null || isWatched(vertex)) {
+            nodeToCount.add(vertex, count);
+        }
+    }
+
+    private boolean isWatched(int vertex) {
+        return vertex >>> 6 < watched.length && (watched[vertex >>> 6] & 1L << vertex) != 0;
+    }
+
+    /**
+     * record that a vertex appeared in the stream, if it is watched
+     */
+    private void see(int vertex) {
+        int word = vertex >>> 6;
+        if (word < watched.length) {
+            watchedSeen[word] |= watched[word] & 1L << vertex;
+        }
+    }
+
+    /**
+     * @return dense IDs of the watched vertices seen in the stream so far, from the set bits of the bitmaps, ordered like output()
+     */
+    private int[] watchedIds() {
+        IntArrayList ids = new IntArrayList();
+        int unseen = 0;
+        for (int i = 0; i < watched.length; i++) {
+            unseen += Long.bitCount(watched[i] & ~watchedSeen[i]);
+            for (long bits = watched[i] & watchedSeen[i]; bits != 0; bits &= bits - 1) {
+                ids.add(i << 6 | Long.numberOfTrailingZeros(bits));
+            }
+        }
+        if (unseen > 0) {
+            System.out.println(unseen + " watched vertices are not in the stream, they are left out of the local triangle file");
+        }
+
+        int[] order = ids.toIntArray();
+        if (idDictionary != null) {
+            IntArrays.quickSort(order, new AbstractIntComparator() {
+                @Override
+                public int compare(int a, int b) {
+                    return Long.compare(idDictionary.key(a), idDictionary.key(b));
+                }
+            });
+        }
+        return order;
+    }
+
     /**
      * generate the random index of deleted edges of remaining edges
      */
     private void randomIndex() {
+        // partial Fisher-Yates shuffle: swap a uniformly chosen slot of the unchosen tail into each of the first N positions,
+        // slot_order stays a permutation, so the N slots of every round are a uniform sample without any allocation
+        for (int i = 0; i < N; i++) {
+            int j = i + random.nextInt(k - i);
+            int slot = slot_order[j];
+            slot_order[j] = slot_order[i];
+            slot_order[i] = slot;
+        }
+    }
 
-        if (alpha <= 0.5) {
-            // generate N different random number
-            IntOpenHashSet indicesToDelete = new IntOpenHashSet();
-            while (indicesToDelete.size() < N) {
-                indicesToDelete.add(random.nextInt(k));
-            }
-            delete_index = indicesToDelete.toIntArray();
 
-        } else {
+    /**
+     * use external vertex IDs in output(), the edges given to processEdge carry the dense IDs of this dictionary
+     * @param idDictionary dictionary mapping external IDs to dense IDs, null for plain int IDs
+     */
+    public void setIdDictionary(LongIdDictionary idDictionary) {
+        this.idDictionary = idDictionary;
+    }
 
-            // shuffle a 0-k sequence
-            List<Integer> number = numbers;
-            Collections.shuffle(number, random);
+    /**
+     * choose the store of the sampled graph, before the first edge is processed
+     * @param store hash, flat, tiered, sorted or compressed, see SampledGraphs
+     */
+    public void setSampledGraph(String store) {
+        neighbors = SampledGraphs.create(store, reservoir[0].length);
+    }
 
-            delete_index = number.subList(0, N).stream().mapToInt(i -> i).toArray();
-            remain_index = number.subList(N, number.size()).stream().mapToInt(i -> i).toArray();
+    public SampledGraph getSampledGraph() {
+        return neighbors;
+    }
 
+    /**
+     * choose the store of the local triangle counts, after the scope and before the first edge is processed
+     * nothing is built in the global scope, which keeps no local counts
+     * @param store auto, hash, dense, dense-float or mapped, see LocalCountStores
+     * @param expectedVertices expected number of vertices, 0 if unknown
+     * @param buffer number of updates combined before they reach the store, see BufferedLocalCountStore, 0 for none
+     * @param topK number of vertices with the largest counts tracked for topK, see TopKLocalCountStore, 0 for none
+     */
+    public void setLocalCountStore(String store, int expectedVertices, int buffer, int topK) throws IOException {
+        if (!localCounts) {
+            return;
+        }
+        nodeToCount = LocalCountStores.create(store, expectedVertices);
+        top = null;
+        if (topK > 0) {
+            top = new TopKLocalCountStore(nodeToCount, topK);
+            nodeToCount = top;
+        }
+        if (buffer > 0) {
+            nodeToCount = new BufferedLocalCountStore(nodeToCount, buffer);
         }
-
     }
 
+    /**
+     * choose which local triangle counts are kept, before the local count store and the first edge
+     * @param scope full (every vertex), watch (only the given vertices) or global (none, no local count store is built)
+     * @param watchList dense IDs of the vertices kept in the watch scope
+     */
+    public void setScope(String scope, int[] watchList) {
+        switch (scope) {
+            case "full":
+                localCounts = true;
+                watched = null;
+                watchedSeen = null;
+                break;
+            case "watch":
+                int max = -1;
+                for (int vertex : watchList) {
+                    max = Math.max(max, vertex);
+                }
+                localCounts = true;
+                watched = new long[(max >> 6) + 1];
+                for (int vertex : watchList) {
+                    watched[vertex >>> 6] |= 1L << vertex;
+                }
+                watchedSeen = new long[watched.length];
+                break;
+            case "global":
+                localCounts = false;
+                watched = null;
+                watchedSeen = null;
+                nodeToCount = new HashLocalCountStore();     // stays empty
+                top = null;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown scope " + scope + ", expected full, watch or global");
+        }
+    }
 
     public double getGlobalTriangle() {
         return globalTriangle;
     }
 
     public Int2DoubleMap getLocalTriangle() {
-        return nodeToCount;
+        nodeToCount.flush();
+        return nodeToCount.toMap();
+    }
+
+    /**
+     * @param vertex dense vertex ID
+     * @return local triangle estimate of the given vertex
+     */
+    public double getLocalTriangle(int vertex) {
+        nodeToCount.flush();
+        return nodeToCount.get(vertex);
+    }
+
+    /**
+     * answered from the tracked vertices, without a pass over the local counts
+     * @param n number of vertices, at most the number tracked, see setLocalCountStore
+     * @return dense IDs of the n vertices with the largest local triangle estimates so far, largest first
+     */
+    public int[] topK(int n) {
+        if (top == null) {
+            throw new IllegalStateException("the top vertices are not tracked, see setLocalCountStore");
+        }
+        nodeToCount.flush();
+        return top.topK(n);
     }
 
     public double getAlpha() {
@@ -300,15 +491,20 @@ public class Estimator {
      * output local triangle estimation to file
      */
     public void output() throws IOException {
+        nodeToCount.flush();
         String fileName = "/data1/local-GREAT1.txt";                  // local triangle estimation file path
 
         BufferedWriter writer = new BufferedWriter(new FileWriter(fileName));
-        for (int i = 0; i <= maxID; i++) {
+        // with mapped IDs, one line per vertex seen, ordered by external ID; in the watch scope, only the watched vertices
+        int[] order = watched != null ? watchedIds() : idDictionary == null ? null : idDictionary.idsByKey();
+        int lines = order == null ? maxID + 1 : order.length;
+        for (int i = 0; i < lines; i++) {
             if (i % 50000000 == 0) {
                 System.out.println("writing node: " + i);
             }
-            double count = nodeToCount.getOrDefault(i, 0.0);
-            writer.write(i + "\t" + count + "\n");
+            int id = order == null ? i : order[i];
+            double count = nodeToCount.get(id);
+            writer.write((idDictionary == null ? String.valueOf(id) : String.valueOf(idDictionary.key(id))) + "\t" + count + "\n");
         }
         writer.close();
     }
@@ -0,0 +1,275 @@
+import it.unimi.dsi.fastutil.HashCommon;
+
+import java.util.Arrays;
+
+
+/**
+ * sampled graph on flat primitive arrays, without an object per node
+ * one open addressing table maps the packed (u, v) pair of an edge to its reservoir slot,
+ * the edges of a node are chained through the slots: slot s holds the half edge 2s at its src and the half edge 2s + 1 at its dst,
+ * each linked to the previous and the next half edge of the same node,
+ * and a second table maps each node with edges to the first half edge of its chain and its degree
+ */
+public class FlatSampledGraph implements SampledGraph {
+
+    private static final int NONE = -1;                         // end of a chain, empty node entry
+    private static final long NO_EDGE = -1L;                    // empty edge entry, the self loop (-1, -1) is never sampled
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final int[] ends;                                   // slot s holds the edge (ends[2s], ends[2s + 1])
+    private final int[] next;                                   // next half edge of the same node
+    private final int[] prev;                                   // previous half edge of the same node
+
+    private final long[] edgeKeys;                              // packed (smaller node, larger node)
+    private final int[] edgeSlots;                              // reservoir slot of the edge
+    private final int edgeMask;
+
+    private int[] nodeKeys;                                     // node
+    private int[] nodeHeads;                                    // first half edge of the node, NONE for an empty entry
+    private int[] nodeDegrees;                                  // number of edges of the node
+    private int nodeMask;
+    private int nodeThreshold;                                  // number of nodes that triggers a rehash
+    private int nodes = 0;
+
+    /**
+     * @param slots number of reservoir slots, edges are added with slots 0 to slots - 1
+     */
+    public FlatSampledGraph(int slots) {
+        ends = new int[2 * slots];
+        next = new int[2 * slots];
+        prev = new int[2 * slots];
+
+        int capacity = HashCommon.arraySize(slots, LOAD_FACTOR);
+        edgeKeys = new long[capacity];
+        edgeSlots = new int[capacity];
+        edgeMask = capacity - 1;
+        Arrays.fill(edgeKeys, NO_EDGE);
+
+        allocateNodes(1 << 10);
+    }
+
+    @Override
+    public void add(int src, int dst, int slot) {
+        long key = key(src, dst);
+        int pos = findEdge(key);
+        if (edgeKeys[pos] == key) {
+            // the edge is sampled again, it moves to the new slot
+            unlink(edgeSlots[pos]);
+        } else {
+            edgeKeys[pos] = key;
+        }
+        edgeSlots[pos] = slot;
+
+        ends[2 * slot] = src;
+        ends[2 * slot + 1] = dst;
+        link(2 * slot, src);
+        link(2 * slot + 1, dst);
+    }
+
+    @Override
+    public void remove(int src, int dst) {
+        long key = key(src, dst);
+        int pos = findEdge(key);
+        if (edgeKeys[pos] == key) {
+            unlink(edgeSlots[pos]);
+            removeEdgeEntry(pos);
+        }
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(edgeKeys, NO_EDGE);
+        Arrays.fill(nodeHeads, NONE);
+        nodes = 0;
+    }
+
+    @Override
+    public int intersect(int src, int dst, CommonNeighbors common) {
+        int srcPos = findNode(src);
+        int dstPos = findNode(dst);
+
+        // if this edge has a new node, there cannot be any triangles
+        if (nodeHeads[srcPos] == NONE || nodeHeads[dstPos] == NONE) {
+            return 0;
+        }
+
+        // walk the chain of the node with fewer edges, probe the edge table for the other one
+        boolean swapped = nodeDegrees[srcPos] > nodeDegrees[dstPos];
+        int walked = swapped ? dstPos : srcPos;
+        int probed = swapped ? src : dst;
+        common.ensureCapacity(nodeDegrees[walked]);
+        int[] walkedSlots = swapped ? common.dstSlots : common.srcSlots;
+        int[] probedSlots = swapped ? common.srcSlots : common.dstSlots;
+
+        int found = 0;
+        for (int h = nodeHeads[walked]; h != NONE; h = next[h]) {
+            int neighbor = ends[h ^ 1];
+            long key = key(probed, neighbor);
+            int pos = findEdge(key);
+            if (edgeKeys[pos] == key) {
+                common.vertices[found] = neighbor;
+                walkedSlots[found] = h >>> 1;
+                probedSlots[found] = edgeSlots[pos];
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public long edges() {
+        long degrees = 0;
+        for (int pos = 0; pos < nodeHeads.length; pos++) {
+            if (nodeHeads[pos] != NONE) {
+                degrees += nodeDegrees[pos];
+            }
+        }
+        return degrees / 2;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return SampledGraphs.arrayBytes(ends.length, 4) * 3
+                + SampledGraphs.arrayBytes(edgeKeys.length, 8) + SampledGraphs.arrayBytes(edgeSlots.length, 4)
+                + SampledGraphs.arrayBytes(nodeKeys.length, 4) * 3;
+    }
+
+    /**
+     * insert a half edge at the head of the chain of its node
+     */
+    private void link(int h, int node) {
+        int pos = findNode(node);
+        int head = nodeHeads[pos];
+        prev[h] = NONE;
+        next[h] = head;
+        if (head == NONE) {
+            nodeKeys[pos] = node;
+            nodeHeads[pos] = h;
+            nodeDegrees[pos] = 1;
+            if (++nodes > nodeThreshold) {
+                rehashNodes(nodeKeys.length * 2);
+            }
+        } else {
+            prev[head] = h;
+            nodeHeads[pos] = h;
+            nodeDegrees[pos]++;
+        }
+    }
+
+    /**
+     * take both half edges of a slot out of their chains
+     */
+    private void unlink(int slot) {
+        for (int h = 2 * slot; h <= 2 * slot + 1; h++) {
+            int pos = findNode(ends[h]);
+            if (prev[h] == NONE) {
+                nodeHeads[pos] = next[h];
+            } else {
+                next[prev[h]] = next[h];
+            }
+            if (next[h] != NONE) {
+                prev[next[h]] = prev[h];
+            }
+            if (--nodeDegrees[pos] == 0) {
+                removeNodeEntry(pos);
+            }
+        }
+    }
+
+    private static long key(int u, int v) {
+        return u < v ? ((long) u << 32) | (v & 0xFFFFFFFFL) : ((long) v << 32) | (u & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return position of the given key in the edge table, or of the empty entry where it would be inserted
+     */
+    private int findEdge(long key) {
+        int pos = (int) (HashCommon.mix(key) & edgeMask);
+        while (edgeKeys[pos] != NO_EDGE && edgeKeys[pos] != key) {
+            pos = (pos + 1) & edgeMask;
+        }
+        return pos;
+    }
+
+    /**
+     * @return position of the given node in the node table, or of the empty entry where it would be inserted
+     */
+    private int findNode(int node) {
+        int pos = HashCommon.mix(node) & nodeMask;
+        while (nodeHeads[pos] != NONE && nodeKeys[pos] != node) {
+            pos = (pos + 1) & nodeMask;
+        }
+        return pos;
+    }
+
+    /**
+     * delete an entry of the edge table, shifting back the entries of its probe sequence
+     */
+    private void removeEdgeEntry(int pos) {
+        for (;;) {
+            int last = pos;
+            for (;;) {
+                pos = (pos + 1) & edgeMask;
+                if (edgeKeys[pos] == NO_EDGE) {
+                    edgeKeys[last] = NO_EDGE;
+                    return;
+                }
+                int home = (int) (HashCommon.mix(edgeKeys[pos]) & edgeMask);
+                if (last <= pos ? last >= home || home > pos : last >= home && home > pos) {
+                    break;
+                }
+            }
+            edgeKeys[last] = edgeKeys[pos];
+            edgeSlots[last] = edgeSlots[pos];
+        }
+    }
+
+    /**
+     * delete an entry of the node table, shifting back the entries of its probe sequence
+     */
+    private void removeNodeEntry(int pos) {
+        nodes--;
+        for (;;) {
+            int last = pos;
+            for (;;) {
+                pos = (pos + 1) & nodeMask;
+                if (nodeHeads[pos] == NONE) {
+                    nodeHeads[last] = NONE;
+                    return;
+                }
+                int home = HashCommon.mix(nodeKeys[pos]) & nodeMask;
+                if (last <= pos ? last >= home || home > pos : last >= home && home > pos) {
+                    break;
+                }
+            }
+            nodeKeys[last] = nodeKeys[pos];
+            nodeHeads[last] = nodeHeads[pos];
+            nodeDegrees[last] = nodeDegrees[pos];
+        }
+    }
+
+    private void rehashNodes(int capacity) {
+        int[] oldKeys = nodeKeys;
+        int[] oldHeads = nodeHeads;
+        int[] oldDegrees = nodeDegrees;
+        allocateNodes(capacity);
+
+        for (int i = 0; i < oldHeads.length; i++) {
+            if (oldHeads[i] != NONE) {
+                int pos = findNode(oldKeys[i]);
+                nodeKeys[pos] = oldKeys[i];
+                nodeHeads[pos] = oldHeads[i];
+                nodeDegrees[pos] = oldDegrees[i];
+            }
+        }
+    }
+
+    private void allocateNodes(int capacity) {
+        nodeKeys = new int[capacity];
+        nodeHeads = new int[capacity];
+        nodeDegrees = new int[capacity];
+        nodeMask = capacity - 1;
+        nodeThreshold = (int) (capacity * LOAD_FACTOR);
+        Arrays.fill(nodeHeads, NONE);
+    }
+}
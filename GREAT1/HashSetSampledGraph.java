@@ -0,0 +1,151 @@
+import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.HashCommon;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+
+import java.util.ArrayDeque;
+
+
+/**
+ * sampled graph as a hash map from each node to a hash set of its neighbors
+ * slots are not stored, intersect reports -1 for them, so this is only for estimators whose weights do not depend on the edges
+ * containers emptied by remove or clear are pooled and reused for new nodes, so the sampling rounds do not allocate one per node
+ * a pooled container is trimmed back to the default capacity, a hub's table handed to a low-degree node would only ever grow;
+ * trimming allocates a default-sized table, so only recycling a container that grew past the default allocates
+ */
+public class HashSetSampledGraph implements SampledGraph {
+
+    private final Int2ObjectOpenHashMap<NeighborSet> neighbors = new Int2ObjectOpenHashMap<>();
+    private final ArrayDeque<NeighborSet> pool = new ArrayDeque<>();     // emptied sets, reused for new nodes
+
+    @Override
+    public void add(int src, int dst, int slot) {
+        neighbors(src).add(dst);
+        neighbors(dst).add(src);
+    }
+
+    @Override
+    public void remove(int src, int dst) {
+        NeighborSet set = neighbors.get(src);
+        if (set != null) {
+            set.remove(dst);
+            if (set.isEmpty()) {
+                recycle(neighbors.remove(src));
+            }
+        }
+
+        set = neighbors.get(dst);
+        if (set != null) {
+            set.remove(src);
+            if (set.isEmpty()) {
+                recycle(neighbors.remove(dst));
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        // recycle every container for the rebuild that follows
+        for (NeighborSet set : neighbors.values()) {
+            recycle(set);
+        }
+        neighbors.clear();
+    }
+
+    @Override
+    public int intersect(int src, int dst, CommonNeighbors common) {
+        IntOpenHashSet srcSet = neighbors.get(src);
+        IntOpenHashSet dstSet = neighbors.get(dst);
+
+        // if this edge has a new node, there cannot be any triangles
+        if (srcSet == null || dstSet == null) {
+            return 0;
+        }
+
+        // iterate the smaller set, probe the larger one
+        if (srcSet.size() > dstSet.size()) {
+            IntOpenHashSet temp = srcSet;
+            srcSet = dstSet;
+            dstSet = temp;
+        }
+        common.ensureCapacity(srcSet.size());
+
+        int found = 0;
+        for (IntIterator it = srcSet.iterator(); it.hasNext(); ) {
+            int neighbor = it.nextInt();
+            if (dstSet.contains(neighbor)) {
+                common.vertices[found] = neighbor;
+                common.srcSlots[found] = -1;
+                common.dstSlots[found] = -1;
+                found++;
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public long edges() {
+        long degrees = 0;
+        for (IntOpenHashSet set : neighbors.values()) {
+            degrees += set.size();
+        }
+        return degrees / 2;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        long bytes = SampledGraphs.hashTableBytes(neighbors.size(), 4, 4);
+        for (NeighborSet set : neighbors.values()) {
+            bytes += SampledGraphs.hashTableCapacityBytes(set.capacity(), 4, 0);
+        }
+        for (NeighborSet set : pool) {
+            bytes += SampledGraphs.hashTableCapacityBytes(set.capacity(), 4, 0);
+        }
+        return bytes;
+    }
+
+    private NeighborSet neighbors(int node) {
+        NeighborSet set = neighbors.get(node);
+        if (set == null) {
+            set = pool.poll();
+            if (set == null) {
+                set = new NeighborSet();
+            }
+            neighbors.put(node, set);
+        }
+        return set;
+    }
+
+    /**
+     * empty the set, shrink its table back to the default capacity and pool it
+     */
+    private void recycle(NeighborSet set) {
+        set.reset();
+        pool.push(set);
+    }
+
+    /**
+     * neighbor set that reports the capacity of its table, clear keeps the table so the size alone understates it
+     */
+    private static final class NeighborSet extends IntOpenHashSet {
+
+        private static final long serialVersionUID = 1L;
+        private static final int DEFAULT_CAPACITY = HashCommon.arraySize(Hash.DEFAULT_INITIAL_SIZE, Hash.DEFAULT_LOAD_FACTOR);
+
+        int capacity() {
+            return n;
+        }
+
+        /**
+         * empty the set and shrink its table to the default capacity, trim(int) of this fastutil version never shrinks
+         * a table still at the default capacity is kept, a larger one is replaced by a new default-sized table
+         */
+        void reset() {
+            clear();
+            if (n > DEFAULT_CAPACITY) {
+                rehash(DEFAULT_CAPACITY);
+            }
+        }
+    }
+}
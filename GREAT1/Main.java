@@ -1,4 +1,5 @@
 import javax.annotation.processing.SupportedSourceVersion;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import java.io.*;
 
 import java.util.Random;
@@ -6,8 +7,24 @@ import java.util.Random;
 
 public class Main {
 
+    private static final int BATCH_SIZE = 4096;                        // edges handed over per read
+    private static final int PIPELINE_BATCHES = 64;                    // batches in flight between reader and estimator
+
     public static void main(String[] args) throws IOException {
-        String inputGraphFile = "/data1/graphFile";        // graph file path
+        String inputGraphFile = System.getProperty("great.input", "/data1/graphFile");        // graph file path, or a live stream (see EdgeSources)
+        boolean pipelined = Boolean.getBoolean("great.pipeline"); // -Dgreat.pipeline=true parses the input on a reader thread
+        int parseThreads = Integer.getInteger("great.parse.threads", 1); // -Dgreat.parse.threads=n parses chunks of a text input on n threads
+        boolean cached = Boolean.getBoolean("great.cache");              // -Dgreat.cache=true reads a text input from its binary cache after the first run
+        String idMode = System.getProperty("great.ids", "int");          // -Dgreat.ids=long maps 64-bit or sparse vertex IDs to dense IDs, long-offheap keeps the map off-heap
+        long distinctEdges = Long.getLong("great.distinct", 0);          // -Dgreat.distinct=n drops duplicate edges, sized for n distinct edges
+        double distinctFpp = Double.parseDouble(System.getProperty("great.distinct.fpp", "0.01")); // false positive rate of the duplicate edge filter
+        String graphStore = System.getProperty("great.graph", "hash");      // -Dgreat.graph=flat|tiered|sorted|compressed chooses the store of the sampled graph
+        String countStore = System.getProperty("great.counts", "auto");     // -Dgreat.counts=hash|dense|dense-float|mapped chooses the store of the local triangle counts
+        int expectedVertices = Integer.getInteger("great.vertices", 0);     // -Dgreat.vertices=n expected number of vertices, lets auto pick a dense array or a mapped file
+        int countBuffer = Integer.getInteger("great.counts.buffer", 0);     // -Dgreat.counts.buffer=n combines n local count updates before they reach the store
+        int topK = Integer.getInteger("great.topk", 0);                     // -Dgreat.topk=n tracks the n vertices with the largest local triangle estimates and prints them
+        String scope = System.getProperty("great.scope", "full");           // -Dgreat.scope=global keeps no local counts, watch keeps those of the vertices listed in -Dgreat.watch
+        String watchFile = System.getProperty("great.watch");               // file of vertex IDs, one per line, for the watch scope
         
         int reservoir_size = Integer.parseInt(args[1]);    // budget
         double alpha = Double.parseDouble(args[0]);        // alpha  
@@ -18,12 +35,38 @@ public class Main {
         System.out.println("alpha = " + alpha);
         System.out.println("budget = " + reservoir_size);
         double time0 = System.currentTimeMillis();
-        run(estimator, inputGraphFile, "\t");
+        LongIdDictionary idDictionary = idMode.equals("int") ? null : new LongIdDictionary(idMode.equals("long-offheap"));
+        estimator.setIdDictionary(idDictionary);
+        estimator.setSampledGraph(graphStore);
+        estimator.setScope(scope, scope.equals("watch") ? readWatchList(watchFile, idDictionary) : null);
+        estimator.setLocalCountStore(countStore, expectedVertices, countBuffer, topK);
+        EdgeSource source = EdgeSources.open(inputGraphFile, parseThreads, cached, idDictionary);
+        if (distinctEdges > 0) {
+            source = new DistinctEdgeSource(source, distinctEdges, distinctFpp);
+        }
+        if (pipelined) {
+            source = new PipelinedEdgeSource(source, PIPELINE_BATCHES, BATCH_SIZE);
+        }
+        run(estimator, source);
         double time1 = System.currentTimeMillis();
         double elpased_time = (time1 - time0) / 1000.0;
             
-        estimator.output();                                // output local triangle file and calculate LAPE
-        estimator.computeLAPE();
+        SampledGraph graph = estimator.getSampledGraph();
+        long graphEdges = graph.edges();
+        System.out.println("sampled graph (" + graphStore + "): " + graphEdges + " edges, " + String.format("%.1f", (double) graph.sizeInBytes() / Math.max(graphEdges, 1)) + " bytes per edge");
+        if (topK > 0 && !scope.equals("global")) {
+            System.out.println("top " + topK + " vertices by local triangle estimate:");
+            for (int vertex : estimator.topK(topK)) {
+                System.out.println((idDictionary == null ? vertex : idDictionary.key(vertex)) + "\t" + estimator.getLocalTriangle(vertex));
+            }
+        }
+
+        if (scope.equals("full")) {
+            estimator.output();                                // output local triangle file and calculate LAPE
+            estimator.computeLAPE();
+        } else if (scope.equals("watch")) {
+            estimator.output();                                // local triangle file of the watched vertices
+        }
                
         discoverd_triangles = estimator.getDiscoverd_triangles();  // get the number of detected triangles
 
@@ -34,37 +77,50 @@ public class Main {
 
     }
 
-    private static void run(Estimator estimator, String inputGraphFile, String delim) throws IOException {
-        BufferedReader br = new BufferedReader(new FileReader(inputGraphFile));
-
-        long lineNum = 0;
-        while(true) {
-            String line = br.readLine();
-            if(line == null) {
-                break;
+    /**
+     * @param file file of vertex IDs, one per line
+     * @param idDictionary map of external IDs to dense IDs, null if IDs are not mapped
+     * @return dense IDs of the listed vertices
+     */
+    private static int[] readWatchList(String file, LongIdDictionary idDictionary) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("the watch scope needs a vertex list, -Dgreat.watch=<file>");
+        }
+        IntArrayList ids = new IntArrayList();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    long key = Long.parseLong(line);
+                    if (idDictionary == null && (key < 0 || key > Integer.MAX_VALUE)) {
+                        throw new IllegalArgumentException("vertex ID " + key + " in the watch list " + file + " is out of int range, run with -Dgreat.ids=long");
+                    }
+                    ids.add(idDictionary == null ? (int) key : idDictionary.id(key));
+                }
             }
+        }
+        return ids.toIntArray();
+    }
 
-            int[] edge = parseEdge(line, delim);
+    private static void run(Estimator estimator, EdgeSource source) throws IOException {
+        int[] src = new int[BATCH_SIZE];
+        int[] dst = new int[BATCH_SIZE];
 
-            estimator.processEdge(edge[0], edge[1]);        // GREAT1 processing streaming edge
+        long lineNum = 0;
+        int n;
+        while ((n = source.read(src, dst, BATCH_SIZE)) != -1) {
+            estimator.processEdges(src, dst, 0, n);         // GREAT1 processing batch of streaming edges
 
-            if ((++lineNum) % 100000000 == 0) {
+            long before = lineNum;
+            lineNum += n;
+            if (lineNum / 100000000 != before / 100000000) {
                 System.out.println("Number of edges processed: " + lineNum +", estimated number of global triangles: " + String.format("%4f", estimator.getGlobalTriangle()));
             }
         }
         System.out.println("GREAT1 terminated ...");
         System.out.println("Estimated number of global triangles: " + String.format("%4f", estimator.getGlobalTriangle()));
 
-        br.close();
-    }
-
-
-
-    private static int[] parseEdge(String line, String delim) {
-        String[] tokens = line.split(delim);
-        int src = Integer.valueOf(tokens[0]);
-        int dst = Integer.valueOf(tokens[1]);
-
-        return new int[]{src, dst};
+        source.close();
     }
 }
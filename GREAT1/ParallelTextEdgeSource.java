@@ -0,0 +1,155 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+
+/**
+ * parses a text edge list with several threads
+ * the file is cut at line boundaries into chunks that are parsed concurrently by a fork-join pool,
+ * the parsed chunks are then handed out strictly in file order, so the stream order is preserved
+ */
+public class ParallelTextEdgeSource implements EdgeSource {
+
+    private static final long CHUNK_SIZE = 1L << 24;           // bytes of text per chunk
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final ForkJoinPool pool;
+    private final int maxInFlight;                              // chunks parsed ahead of the estimator
+    private final ArrayDeque<ForkJoinTask<EdgeChunk>> inFlight = new ArrayDeque<>();
+    private long nextChunkStart = 0;                            // file offset of the next chunk to submit
+
+    private EdgeChunk chunk;                                    // chunk being handed out
+    private int offset = 0;                                     // next edge of that chunk
+
+    /**
+     * edges parsed from one chunk of the file
+     */
+    private static class EdgeChunk {
+        int[] src;
+        int[] dst;
+        int size = 0;
+
+        EdgeChunk(int capacity) {
+            src = new int[capacity];
+            dst = new int[capacity];
+        }
+    }
+
+    /**
+     * @param inputGraphFile graph file path
+     * @param threads number of parsing threads
+     */
+    public ParallelTextEdgeSource(String inputGraphFile, int threads) throws IOException {
+        this.channel = FileChannel.open(Paths.get(inputGraphFile), StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.pool = new ForkJoinPool(threads);
+        this.maxInFlight = 2 * threads;
+
+        while (inFlight.size() < maxInFlight && submitNextChunk()) {
+        }
+    }
+
+    /**
+     * cut the next chunk after the first newline following CHUNK_SIZE bytes and submit it for parsing
+     * @return false if the whole file has been submitted
+     */
+    private boolean submitNextChunk() throws IOException {
+        if (nextChunkStart >= fileSize) {
+            return false;
+        }
+
+        long start = nextChunkStart;
+        long end = findLineEnd(Math.min(start + CHUNK_SIZE, fileSize));
+        nextChunkStart = end;
+
+        inFlight.addLast(pool.submit(() -> parseChunk(start, end)));
+        return true;
+    }
+
+    /**
+     * @param from file offset to start searching from
+     * @return file offset just after the next '\n' at or after from, or the file size
+     */
+    private long findLineEnd(long from) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long pos = from;
+        while (pos < fileSize) {
+            probe.clear();
+            int n = channel.read(probe, pos);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                if (probe.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += n;
+        }
+        return fileSize;
+    }
+
+    /**
+     * parse the lines in [start, end) of the file, runs on the pool
+     */
+    private EdgeChunk parseChunk(long start, long end) throws IOException {
+        ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        EdgeChunk parsed = new EdgeChunk((int) ((end - start) / 8) + 16);
+
+        TextEdgeSource parser = new TextEdgeSource(bytes);
+        int[] src = new int[4096];
+        int[] dst = new int[4096];
+        int n;
+        while ((n = parser.read(src, dst, src.length)) != -1) {
+            if (parsed.size + n > parsed.src.length) {
+                int capacity = Math.max(parsed.size + n, parsed.src.length + (parsed.src.length >> 1));
+                parsed.src = Arrays.copyOf(parsed.src, capacity);
+                parsed.dst = Arrays.copyOf(parsed.dst, capacity);
+            }
+            System.arraycopy(src, 0, parsed.src, parsed.size, n);
+            System.arraycopy(dst, 0, parsed.dst, parsed.size, n);
+            parsed.size += n;
+        }
+        return parsed;
+    }
+
+    @Override
+    public int read(int[] src, int[] dst, int length) throws IOException {
+        while (chunk == null || offset == chunk.size) {
+            ForkJoinTask<EdgeChunk> next = inFlight.pollFirst();
+            if (next == null) {
+                return -1;
+            }
+            try {
+                chunk = next.get();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("interrupted while waiting for a parsed chunk");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException("chunk parsing failed", cause);
+            }
+            offset = 0;
+            submitNextChunk();
+        }
+
+        int n = Math.min(length, chunk.size - offset);
+        System.arraycopy(chunk.src, offset, src, 0, n);
+        System.arraycopy(chunk.dst, offset, dst, 0, n);
+        offset += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        pool.shutdownNow();
+        channel.close();
+    }
+}
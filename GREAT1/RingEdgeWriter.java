@@ -0,0 +1,125 @@
+import java.io.*;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * producer side of a ring file read by RingEdgeSource
+ * write blocks while the ring is full, so the producer never runs ahead of the estimator by more than the ring capacity
+ *
+ * usage: java -cp .:<your_path_to_fastutil.jar> RingEdgeWriter <ring file> <graph file>
+ * replays a graph file into a ring file opened by Main with the input "ring:<ring file>"
+ */
+public class RingEdgeWriter implements Closeable {
+
+    private final FileChannel channel;
+    private final MappedByteBuffer ring;
+    private final int capacity;
+    private final int mask;
+    private long writePos = 0;
+    private long readPos = 0;                                   // last read position seen, refreshed when the ring looks full
+
+    /**
+     * attach to a ring file, waiting for the reader to create it
+     * a ring that is closed or already claimed by a writer was left by an earlier run, the writer waits for the reader to replace it
+     * @param ringFile ring file path
+     */
+    public RingEdgeWriter(String ringFile) throws IOException {
+        Path path = Paths.get(ringFile);
+        FileChannel channel;
+        MappedByteBuffer header;
+        int idle = 0;
+        while (true) {
+            if (Files.isRegularFile(path) && Files.size(path) >= RingEdgeSource.DATA_OFFSET) {
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                header = channel.map(FileChannel.MapMode.READ_WRITE, 0, RingEdgeSource.DATA_OFFSET);
+                header.order(ByteOrder.LITTLE_ENDIAN);
+                if (claim(header)) {
+                    break;
+                }
+                channel.close();
+            }
+            idle = RingEdgeSource.backoff(Math.max(idle, 200));
+        }
+
+        this.channel = channel;
+        this.capacity = header.getInt(RingEdgeSource.CAPACITY_OFFSET);
+        this.mask = capacity - 1;
+        this.ring = channel.map(FileChannel.MapMode.READ_WRITE, 0, RingEdgeSource.DATA_OFFSET + (long) capacity * BinaryEdgeSource.EDGE_SIZE);
+        ring.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * @return true if the header is a ring of this version, open, and now claimed by this writer
+     */
+    private static boolean claim(MappedByteBuffer header) {
+        for (int i = 0; i < RingEdgeSource.MAGIC.length; i++) {
+            if (header.get(i) != RingEdgeSource.MAGIC[i]) {
+                return false;
+            }
+        }
+        return header.getInt(8) == RingEdgeSource.VERSION
+                && (int) RingEdgeSource.INTS.getAcquire(header, RingEdgeSource.CLOSED_OFFSET) == 0
+                && RingEdgeSource.INTS.compareAndSet(header, RingEdgeSource.CLAIMED_OFFSET, 0, 1);
+    }
+
+    /**
+     * publish edges to the reader, waiting for free slots when the ring is full
+     * @param src source nodes of the edges
+     * @param dst destination nodes of the edges
+     * @param length number of edges
+     */
+    public void write(int[] src, int[] dst, int length) {
+        int written = 0;
+        while (written < length) {
+            int idle = 0;
+            while (writePos - readPos == capacity) {
+                readPos = (long) RingEdgeSource.LONGS.getAcquire(ring, RingEdgeSource.READ_OFFSET);
+                if (writePos - readPos == capacity) {
+                    idle = RingEdgeSource.backoff(idle);
+                }
+            }
+
+            int n = (int) Math.min(length - written, capacity - (writePos - readPos));
+            for (int i = 0; i < n; i++) {
+                int offset = RingEdgeSource.DATA_OFFSET + (int) ((writePos + i) & mask) * BinaryEdgeSource.EDGE_SIZE;
+                ring.putInt(offset, src[written + i]);
+                ring.putInt(offset + 4, dst[written + i]);
+            }
+            written += n;
+            writePos += n;
+            RingEdgeSource.LONGS.setRelease(ring, RingEdgeSource.WRITE_OFFSET, writePos);
+        }
+    }
+
+    /**
+     * mark the end of the stream, the reader returns -1 once it has consumed everything
+     */
+    @Override
+    public void close() throws IOException {
+        RingEdgeSource.INTS.setRelease(ring, RingEdgeSource.CLOSED_OFFSET, 1);
+        channel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        String ringFile = args[0];
+        String inputGraphFile = args[1];
+
+        int[] src = new int[4096];
+        int[] dst = new int[4096];
+        long edges = 0;
+        try (RingEdgeWriter writer = new RingEdgeWriter(ringFile); EdgeSource source = EdgeSources.open(inputGraphFile)) {
+            int n;
+            while ((n = source.read(src, dst, src.length)) != -1) {
+                writer.write(src, dst, n);
+                edges += n;
+            }
+        }
+        System.out.println("written " + edges + " edges to " + ringFile);
+    }
+}
@@ -0,0 +1,116 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * streams an ordered list of shard files as one edge stream
+ * shards may be text, gzip or binary edge files, each shard is decoded by its own reader thread,
+ * and the next shard is opened and read ahead while the current one is processed,
+ * so there is no I/O stall at shard boundaries
+ */
+public class ShardedEdgeSource implements EdgeSource {
+
+    private static final int PREFETCH_BATCHES = 16;             // batches read ahead per shard
+    private static final int BATCH_SIZE = 4096;
+
+    private final List<String> shards;
+    private final int parseThreads;
+    private final boolean cached;
+    private final LongIdDictionary idDictionary;                // shards are not read ahead when IDs are mapped
+
+    private int nextShard = 0;                                  // index of the next shard to open
+    private EdgeSource current;
+    private EdgeSource next;                                    // prefetched shard
+
+    /**
+     * @param shards shard files in stream order
+     * @param parseThreads number of threads parsing chunks of an uncompressed text shard
+     * @param cached read text shards from their binary caches
+     * @param idDictionary maps vertex IDs to dense IDs, null keeps int IDs
+     */
+    public ShardedEdgeSource(List<String> shards, int parseThreads, boolean cached, LongIdDictionary idDictionary) throws IOException {
+        this.shards = shards;
+        this.parseThreads = parseThreads;
+        this.cached = cached;
+        this.idDictionary = idDictionary;
+
+        current = openNextShard();
+        next = openNextShard();
+    }
+
+    /**
+     * list the shards of a directory, or of a list file with one shard path per line
+     * shards of a directory are ordered by file name, hidden files and binary caches are skipped
+     * @param shardSpec a directory, or a list file prefixed with '@'
+     */
+    public static List<String> listShards(String shardSpec) throws IOException {
+        List<String> shards = new ArrayList<>();
+        if (shardSpec.startsWith("@")) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(shardSpec.substring(1)))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (!line.isEmpty() && !line.startsWith("#")) {
+                        shards.add(line);
+                    }
+                }
+            }
+            return shards;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(shardSpec))) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (Files.isRegularFile(file) && !name.startsWith(".") && !CachingEdgeSource.isCacheFile(file)) {
+                    shards.add(file.toString());
+                }
+            }
+        }
+        Collections.sort(shards);
+        return shards;
+    }
+
+    /**
+     * open the next shard, its reader thread starts reading ahead immediately
+     * @return the shard, or null after the last one
+     */
+    private EdgeSource openNextShard() throws IOException {
+        if (nextShard >= shards.size()) {
+            return null;
+        }
+        String shard = shards.get(nextShard++);
+        if (idDictionary != null) {
+            // dense IDs are assigned in stream order, so the shards are read one after another on the calling thread
+            return EdgeSources.open(shard, parseThreads, cached, idDictionary);
+        }
+        return new PipelinedEdgeSource(EdgeSources.open(shard, parseThreads, cached, null), PREFETCH_BATCHES, BATCH_SIZE);
+    }
+
+    @Override
+    public int read(int[] src, int[] dst, int length) throws IOException {
+        while (current != null) {
+            int n = current.read(src, dst, length);
+            if (n != -1) {
+                return n;
+            }
+
+            current.close();
+            current = next;
+            next = openNextShard();
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            current.close();
+        }
+        if (next != null) {
+            next.close();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * parses a text edge list straight from the raw bytes of a large direct buffer
+ * one edge per line, the two vertex IDs separated by any run of '\t', ' ' or ','
+ * further columns are ignored, empty lines and lines starting with '#' or '%' are skipped
+ * vertex IDs are ints, or any long when a LongIdDictionary maps them to dense IDs
+ * no object is created per line
+ */
+public class TextEdgeSource implements EdgeSource {
+
+    private static final int BUFFER_SIZE = 1 << 24;            // bytes read from the channel at once
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final boolean live;                                 // stdin or a socket, edges are returned as they arrive
+    private boolean eof = false;                                // channel is exhausted, the buffer holds the tail
+    private long lineNum = 0;                                   // for error messages
+
+    private LongIdDictionary idDictionary = null;               // maps 64-bit IDs to dense IDs, null for plain int IDs
+
+    private int parsedSrc;                                      // result of the last parseLine
+    private int parsedDst;
+    private long parsedValue;                                   // result of the last parseNumber
+
+    public TextEdgeSource(String inputGraphFile) throws IOException {
+        this(FileChannel.open(Paths.get(inputGraphFile), StandardOpenOption.READ));
+    }
+
+    public TextEdgeSource(ReadableByteChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        this.live = !(channel instanceof FileChannel || channel instanceof InflatingChannel);
+        buffer.flip();                                          // start with an empty buffer
+    }
+
+    /**
+     * parse the remaining bytes of the given buffer, e.g. a mapped chunk of a file ending at a line boundary
+     * @param chunk bytes of complete lines
+     */
+    public TextEdgeSource(ByteBuffer chunk) {
+        this.channel = null;
+        this.buffer = chunk;
+        this.live = false;
+        this.eof = true;
+    }
+
+    /**
+     * map the vertex IDs through the given dictionary, which allows any long as external vertex ID
+     * @param idDictionary dictionary assigning dense IDs in order of first appearance
+     */
+    public void setIdDictionary(LongIdDictionary idDictionary) {
+        this.idDictionary = idDictionary;
+    }
+
+    @Override
+    public int read(int[] src, int[] dst, int length) throws IOException {
+        int n = 0;
+        while (n < length) {
+            int next = parseLine(buffer.position());
+            if (next == -1) {
+                // the current line is cut by the end of the buffer; a live stream returns the edges that have
+                // arrived rather than block until the batch is full
+                if (eof || live && n > 0) {
+                    break;
+                }
+                refill();
+                continue;
+            }
+
+            buffer.position(next);
+            lineNum++;
+            if (parsedSrc >= 0) {
+                src[n] = parsedSrc;
+                dst[n] = parsedDst;
+                n++;
+            }
+        }
+
+        if (n == 0 && eof && !buffer.hasRemaining()) {
+            return -1;
+        }
+        return n;
+    }
+
+    /**
+     * parse the line starting at the given buffer index into parsedSrc and parsedDst
+     * parsedSrc is set to -1 for lines without an edge
+     * @param pos index of the first byte of the line
+     * @return index of the next line, or -1 if the line is not complete in the buffer
+     */
+    private int parseLine(int pos) throws IOException {
+        ByteBuffer buf = buffer;
+        int limit = buf.limit();
+        parsedSrc = -1;
+        if (pos >= limit) {
+            return -1;
+        }
+
+        // skip leading delimiters
+        byte b = buf.get(pos);
+        while (isDelimiter(b)) {
+            if (++pos >= limit) {
+                return eof ? pos : -1;
+            }
+            b = buf.get(pos);
+        }
+
+        if (b == '\n' || b == '#' || b == '%') {
+            // empty or comment line
+            while (b != '\n') {
+                if (++pos >= limit) {
+                    return eof ? pos : -1;
+                }
+                b = buf.get(pos);
+            }
+            return pos + 1;
+        }
+
+        // source node
+        pos = parseNumber(pos, limit);
+        if (pos == -1) {
+            return -1;
+        }
+        if (pos >= limit || !isDelimiter(buf.get(pos))) {
+            throw malformed();
+        }
+        long src = parsedValue;
+
+        // delimiters between the two nodes
+        b = buf.get(pos);
+        while (isDelimiter(b)) {
+            if (++pos >= limit) {
+                if (!eof) {
+                    return -1;
+                }
+                throw malformed();
+            }
+            b = buf.get(pos);
+        }
+
+        // destination node
+        pos = parseNumber(pos, limit);
+        if (pos == -1) {
+            return -1;
+        }
+        long dst = parsedValue;
+
+        // ignore the remaining columns
+        while (pos < limit && buf.get(pos) != '\n') {
+            pos++;
+        }
+        if (pos >= limit && !eof) {
+            return -1;
+        }
+
+        if (idDictionary != null) {
+            parsedSrc = idDictionary.id(src);
+            parsedDst = idDictionary.id(dst);
+        } else {
+            if (src < 0 || src > Integer.MAX_VALUE || dst < 0 || dst > Integer.MAX_VALUE) {
+                throw new IOException("vertex ID out of int range at line " + (lineNum + 1) + ", run with -Dgreat.ids=long");
+            }
+            parsedSrc = (int) src;
+            parsedDst = (int) dst;
+        }
+        return pos < limit ? pos + 1 : pos;
+    }
+
+    /**
+     * parse a decimal number, optionally negative, into parsedValue
+     * @param pos index of the first byte of the number
+     * @return index of the byte following the number, or -1 if the number is not complete in the buffer
+     */
+    private int parseNumber(int pos, int limit) throws IOException {
+        ByteBuffer buf = buffer;
+        byte b = buf.get(pos);
+        boolean negative = b == '-';
+        if (negative) {
+            if (++pos >= limit) {
+                if (!eof) {
+                    return -1;
+                }
+                throw malformed();
+            }
+            b = buf.get(pos);
+        }
+
+        long value = 0;
+        int digits = 0;
+        while (b >= '0' && b <= '9') {
+            if (digits >= 18 && value > (Long.MAX_VALUE - (b - '0')) / 10) {
+                throw malformed();
+            }
+            value = value * 10 + (b - '0');
+            digits++;
+            if (++pos >= limit) {
+                if (!eof) {
+                    return -1;
+                }
+                break;
+            }
+            b = buf.get(pos);
+        }
+
+        // the number ends at a delimiter, a newline or the end of the stream
+        if (digits == 0 || (pos < limit && b != '\n' && !isDelimiter(b))) {
+            throw malformed();
+        }
+        parsedValue = negative ? -value : value;
+        return pos;
+    }
+
+    private static boolean isDelimiter(byte b) {
+        return b == '\t' || b == ' ' || b == ',' || b == '\r';
+    }
+
+    private IOException malformed() {
+        return new IOException("malformed edge at line " + (lineNum + 1));
+    }
+
+    /**
+     * keep the unparsed tail of the buffer and append the next bytes of the channel
+     * until the buffer is full, or only the bytes available now for a live stream
+     */
+    private void refill() throws IOException {
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            throw new IOException("line " + (lineNum + 1) + " is longer than " + buffer.capacity() + " bytes");
+        }
+        do {
+            if (channel.read(buffer) == -1) {
+                eof = true;
+                break;
+            }
+        } while (!live && buffer.hasRemaining());
+        buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
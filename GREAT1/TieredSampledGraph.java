@@ -0,0 +1,421 @@
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+
+import java.util.Arrays;
+
+
+/**
+ * sampled graph whose per node containers follow the degree of the node:
+ * a small sorted array for the many nodes with a few edges, a hash map above SMALL_MAX edges,
+ * and a hash map plus a chunked bitmap of the neighbors for hubs above HUB_MIN edges;
+ * containers are demoted again with some hysteresis when edges are removed
+ * intersect picks the strategy by the container types of the two nodes:
+ * merge of two sorted arrays, probing the larger container with the smaller one, or AND of two bitmaps
+ */
+public class TieredSampledGraph implements SampledGraph {
+
+    private static final int SMALL_MAX = 16;                    // largest sorted array
+    private static final int HASH_MIN = 8;                      // a hash map this small becomes a sorted array again
+    private static final int HUB_MIN = 4096;                    // smallest hub
+    private static final int HUB_DEMOTE = 2048;                 // a hub this small loses its bitmap
+
+    private final Int2ObjectOpenHashMap<Adjacency> neighbors = new Int2ObjectOpenHashMap<>();
+
+    @Override
+    public void add(int src, int dst, int slot) {
+        putNeighbor(src, dst, slot);
+        putNeighbor(dst, src, slot);
+    }
+
+    @Override
+    public void remove(int src, int dst) {
+        removeNeighbor(src, dst);
+        removeNeighbor(dst, src);
+    }
+
+    @Override
+    public void clear() {
+        neighbors.clear();
+    }
+
+    @Override
+    public int intersect(int src, int dst, CommonNeighbors common) {
+        Adjacency a = neighbors.get(src);
+        Adjacency b = neighbors.get(dst);
+
+        // if this edge has a new node, there cannot be any triangles
+        if (a == null || b == null) {
+            return 0;
+        }
+
+        boolean swapped = a.size() > b.size();
+        if (swapped) {
+            Adjacency temp = a;
+            a = b;
+            b = temp;
+        }
+        common.ensureCapacity(a.size());
+        int[] aSlots = swapped ? common.dstSlots : common.srcSlots;
+        int[] bSlots = swapped ? common.srcSlots : common.dstSlots;
+
+        if (a instanceof SortedAdjacency && b instanceof SortedAdjacency) {
+            return ((SortedAdjacency) a).merge((SortedAdjacency) b, common.vertices, aSlots, bSlots);
+        }
+        if (a instanceof HubAdjacency && b instanceof HubAdjacency) {
+            return ((HubAdjacency) a).and((HubAdjacency) b, common.vertices, aSlots, bSlots);
+        }
+        return a.probe(b, common.vertices, aSlots, bSlots);
+    }
+
+    @Override
+    public long edges() {
+        long degrees = 0;
+        for (Adjacency adjacency : neighbors.values()) {
+            degrees += adjacency.size();
+        }
+        return degrees / 2;
+    }
+
+    @Override
+    public long sizeInBytes() {
+        long bytes = SampledGraphs.hashTableBytes(neighbors.size(), 4, 4);
+        for (Adjacency adjacency : neighbors.values()) {
+            bytes += adjacency.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    private void putNeighbor(int node, int neighbor, int slot) {
+        Adjacency adjacency = neighbors.get(node);
+        if (adjacency == null) {
+            adjacency = new SortedAdjacency(2);
+            neighbors.put(node, adjacency);
+        }
+        adjacency.put(neighbor, slot);
+
+        int size = adjacency.size();
+        if (size > SMALL_MAX && adjacency instanceof SortedAdjacency) {
+            neighbors.put(node, convert(adjacency, new HashAdjacency(size)));
+        } else if (size > HUB_MIN && !(adjacency instanceof HubAdjacency)) {
+            neighbors.put(node, convert(adjacency, new HubAdjacency(size)));
+        }
+    }
+
+    private void removeNeighbor(int node, int neighbor) {
+        Adjacency adjacency = neighbors.get(node);
+        if (adjacency == null) {
+            return;
+        }
+        adjacency.remove(neighbor);
+
+        int size = adjacency.size();
+        if (size == 0) {
+            neighbors.remove(node);
+        } else if (size <= HASH_MIN && !(adjacency instanceof SortedAdjacency)) {
+            neighbors.put(node, convert(adjacency, new SortedAdjacency(SMALL_MAX + 1)));
+        } else if (size <= HUB_DEMOTE && adjacency instanceof HubAdjacency) {
+            neighbors.put(node, convert(adjacency, new HashAdjacency(size)));
+        }
+    }
+
+    private static Adjacency convert(Adjacency from, Adjacency to) {
+        from.copyTo(to);
+        return to;
+    }
+
+    /**
+     * neighbors of a node and the slots of the edges to them
+     */
+    private abstract static class Adjacency {
+
+        abstract int size();
+
+        /**
+         * @return slot of the edge to the given neighbor, -1 if there is none
+         */
+        abstract int get(int neighbor);
+
+        abstract void put(int neighbor, int slot);
+
+        abstract void remove(int neighbor);
+
+        /**
+         * copy all entries into another container
+         */
+        abstract void copyTo(Adjacency other);
+
+        /**
+         * iterate this container and look up each neighbor in the other one
+         * @return number of common neighbors written to vertices, slots and otherSlots
+         */
+        abstract int probe(Adjacency other, int[] vertices, int[] slots, int[] otherSlots);
+
+        /**
+         * @return estimated memory of the container in bytes
+         */
+        abstract long sizeInBytes();
+    }
+
+    /**
+     * sorted array of neighbors, with the slots in a parallel array
+     */
+    private static final class SortedAdjacency extends Adjacency {
+
+        private int[] keys;
+        private int[] slots;
+        private int size = 0;
+
+        SortedAdjacency(int capacity) {
+            keys = new int[capacity];
+            slots = new int[capacity];
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        int get(int neighbor) {
+            int i = Arrays.binarySearch(keys, 0, size, neighbor);
+            return i >= 0 ? slots[i] : -1;
+        }
+
+        @Override
+        void put(int neighbor, int slot) {
+            int i = Arrays.binarySearch(keys, 0, size, neighbor);
+            if (i >= 0) {
+                slots[i] = slot;
+                return;
+            }
+            i = -i - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            System.arraycopy(keys, i, keys, i + 1, size - i);
+            System.arraycopy(slots, i, slots, i + 1, size - i);
+            keys[i] = neighbor;
+            slots[i] = slot;
+            size++;
+        }
+
+        @Override
+        void remove(int neighbor) {
+            int i = Arrays.binarySearch(keys, 0, size, neighbor);
+            if (i >= 0) {
+                System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+                System.arraycopy(slots, i + 1, slots, i, size - i - 1);
+                size--;
+            }
+        }
+
+        @Override
+        void copyTo(Adjacency other) {
+            for (int i = 0; i < size; i++) {
+                other.put(keys[i], slots[i]);
+            }
+        }
+
+        @Override
+        int probe(Adjacency other, int[] vertices, int[] slots, int[] otherSlots) {
+            int found = 0;
+            for (int i = 0; i < size; i++) {
+                int slot = other.get(keys[i]);
+                if (slot != -1) {
+                    vertices[found] = keys[i];
+                    slots[found] = this.slots[i];
+                    otherSlots[found] = slot;
+                    found++;
+                }
+            }
+            return found;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 24 + SampledGraphs.arrayBytes(keys.length, 4) * 2;
+        }
+
+        /**
+         * linear merge of two sorted arrays
+         */
+        int merge(SortedAdjacency other, int[] vertices, int[] slots, int[] otherSlots) {
+            int found = 0;
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                int a = keys[i];
+                int b = other.keys[j];
+                if (a < b) {
+                    i++;
+                } else if (a > b) {
+                    j++;
+                } else {
+                    vertices[found] = a;
+                    slots[found] = this.slots[i++];
+                    otherSlots[found] = other.slots[j++];
+                    found++;
+                }
+            }
+            return found;
+        }
+    }
+
+    /**
+     * hash map from neighbor to slot
+     */
+    private static class HashAdjacency extends Adjacency {
+
+        final Int2IntOpenHashMap map;
+
+        HashAdjacency(int expected) {
+            map = new Int2IntOpenHashMap(2 * expected);
+            map.defaultReturnValue(-1);
+        }
+
+        @Override
+        int size() {
+            return map.size();
+        }
+
+        @Override
+        int get(int neighbor) {
+            return map.get(neighbor);
+        }
+
+        @Override
+        void put(int neighbor, int slot) {
+            map.put(neighbor, slot);
+        }
+
+        @Override
+        void remove(int neighbor) {
+            map.remove(neighbor);
+        }
+
+        @Override
+        void copyTo(Adjacency other) {
+            ObjectIterator<Int2IntMap.Entry> entries = map.int2IntEntrySet().fastIterator();
+            while (entries.hasNext()) {
+                Int2IntMap.Entry entry = entries.next();
+                other.put(entry.getIntKey(), entry.getIntValue());
+            }
+        }
+
+        @Override
+        int probe(Adjacency other, int[] vertices, int[] slots, int[] otherSlots) {
+            int found = 0;
+            ObjectIterator<Int2IntMap.Entry> entries = map.int2IntEntrySet().fastIterator();
+            while (entries.hasNext()) {
+                Int2IntMap.Entry entry = entries.next();
+                int slot = other.get(entry.getIntKey());
+                if (slot != -1) {
+                    vertices[found] = entry.getIntKey();
+                    slots[found] = entry.getIntValue();
+                    otherSlots[found] = slot;
+                    found++;
+                }
+            }
+            return found;
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16 + SampledGraphs.hashTableBytes(map.size(), 4, 4);
+        }
+    }
+
+    /**
+     * hash map from neighbor to slot, plus a bitmap of the neighbors in chunks of CHUNK_BITS bits, only non-empty chunks are stored
+     * lookups of absent neighbors, the common case when probing a hub, stop at the bitmap
+     */
+    private static final class HubAdjacency extends HashAdjacency {
+
+        private static final int CHUNK_SHIFT = 10;
+        private static final int CHUNK_BITS = 1 << CHUNK_SHIFT;
+        private static final int CHUNK_MASK = CHUNK_BITS - 1;
+
+        private final Int2ObjectOpenHashMap<long[]> chunks = new Int2ObjectOpenHashMap<>();
+
+        HubAdjacency(int expected) {
+            super(expected);
+        }
+
+        @Override
+        int get(int neighbor) {
+            long[] chunk = chunks.get(neighbor >> CHUNK_SHIFT);
+            if (chunk == null || (chunk[(neighbor & CHUNK_MASK) >>> 6] & (1L << neighbor)) == 0) {
+                return -1;
+            }
+            return map.get(neighbor);
+        }
+
+        @Override
+        void put(int neighbor, int slot) {
+            super.put(neighbor, slot);
+            long[] chunk = chunks.get(neighbor >> CHUNK_SHIFT);
+            if (chunk == null) {
+                chunk = new long[CHUNK_BITS / 64];
+                chunks.put(neighbor >> CHUNK_SHIFT, chunk);
+            }
+            chunk[(neighbor & CHUNK_MASK) >>> 6] |= 1L << neighbor;
+        }
+
+        @Override
+        void remove(int neighbor) {
+            super.remove(neighbor);
+            long[] chunk = chunks.get(neighbor >> CHUNK_SHIFT);
+            if (chunk != null) {
+                chunk[(neighbor & CHUNK_MASK) >>> 6] &= ~(1L << neighbor);
+                for (long word : chunk) {
+                    if (word != 0) {
+                        return;
+                    }
+                }
+                chunks.remove(neighbor >> CHUNK_SHIFT);
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return super.sizeInBytes() + SampledGraphs.hashTableBytes(chunks.size(), 4, 4)
+                    + chunks.size() * SampledGraphs.arrayBytes(CHUNK_BITS / 64, 8);
+        }
+
+        /**
+         * AND of the bitmaps of two hubs, chunk by chunk
+         */
+        int and(HubAdjacency other, int[] vertices, int[] slots, int[] otherSlots) {
+            HubAdjacency walked = chunks.size() <= other.chunks.size() ? this : other;
+            HubAdjacency probed = walked == this ? other : this;
+
+            int found = 0;
+            ObjectIterator<Int2ObjectMap.Entry<long[]>> entries = walked.chunks.int2ObjectEntrySet().fastIterator();
+            while (entries.hasNext()) {
+                Int2ObjectMap.Entry<long[]> entry = entries.next();
+                long[] otherChunk = probed.chunks.get(entry.getIntKey());
+                if (otherChunk == null) {
+                    continue;
+                }
+                long[] chunk = entry.getValue();
+                int base = entry.getIntKey() << CHUNK_SHIFT;
+                for (int w = 0; w < chunk.length; w++) {
+                    long both = chunk[w] & otherChunk[w];
+                    while (both != 0) {
+                        int neighbor = base | (w << 6) | Long.numberOfTrailingZeros(both);
+                        both &= both - 1;
+                        vertices[found] = neighbor;
+                        slots[found] = map.get(neighbor);
+                        otherSlots[found] = other.map.get(neighbor);
+                        found++;
+                    }
+                }
+            }
+            return found;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+import it.unimi.dsi.fastutil.ints.AbstractIntComparator;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+
+import java.util.Arrays;
+
+
+/**
+ * tracks the vertices with the largest local triangle counts of another store in an indexed min-heap
+ * counts only grow, so a vertex enters the heap when its count passes the smallest one in it, and the heap always
+ * holds the exact top vertices; an update below the smallest count in a full heap costs one comparison
+ */
+public class TopKLocalCountStore implements LocalCountStore {
+
+    private final LocalCountStore counts;                       // store the updates go to
+    private final int[] heap;                                   // vertices, min-heap by count
+    private final double[] keys;                                // counts of the vertices in the heap
+    private final Int2IntOpenHashMap position = new Int2IntOpenHashMap();  // heap index of each vertex in the heap
+    private int size = 0;
+
+    /**
+     * @param counts store the updates go to
+     * @param capacity number of vertices tracked
+     */
+    public TopKLocalCountStore(LocalCountStore counts, int capacity) {
+        this.counts = counts;
+        this.heap = new int[capacity];
+        this.keys = new double[capacity];
+        position.defaultReturnValue(-1);
+    }
+
+    @Override
+    public void add(int vertex, double delta) {
+        counts.add(vertex, delta);
+        double count = counts.get(vertex);
+        if (size == heap.length && count <= keys[0]) {
+            return;         // a vertex in the heap would now count more than keys[0], so this one is not in it and stays out
+        }
+
+        int index = position.get(vertex);
+        if (index >= 0) {
+            keys[index] = count;
+            siftDown(index);
+        } else if (size < heap.length) {
+            heap[size] = vertex;
+            keys[size] = count;
+            position.put(vertex, size);
+            siftUp(size++);
+        } else {
+            position.remove(heap[0]);
+            heap[0] = vertex;
+            keys[0] = count;
+            position.put(vertex, 0);
+            siftDown(0);
+        }
+    }
+
+    /**
+     * @param n number of vertices, at most the capacity
+     * @return the n vertices with the largest counts, largest first, fewer if fewer vertices have a count
+     */
+    public int[] topK(int n) {
+        if (n > heap.length) {
+            throw new IllegalArgumentException("only the top " + heap.length + " vertices are tracked");
+        }
+        int[] vertices = Arrays.copyOf(heap, size);
+        IntArrays.quickSort(vertices, new AbstractIntComparator() {
+            @Override
+            public int compare(int a, int b) {
+                return Double.compare(keys[position.get(b)], keys[position.get(a)]);
+            }
+        });
+        return Arrays.copyOf(vertices, Math.min(n, size));
+    }
+
+    private void siftUp(int index) {
+        int vertex = heap[index];
+        double key = keys[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            move(parent, index);
+            index = parent;
+        }
+        place(vertex, key, index);
+    }
+
+    private void siftDown(int index) {
+        int vertex = heap[index];
+        double key = keys[index];
+        int half = size >>> 1;
+        while (index < half) {
+            int child = 2 * index + 1;
+            if (child + 1 < size && keys[child + 1] < keys[child]) {
+                child++;
+            }
+            if (key <= keys[child]) {
+                break;
+            }
+            move(child, index);
+            index = child;
+        }
+        place(vertex, key, index);
+    }
+
+    private void move(int from, int to) {
+        heap[to] = heap[from];
+        keys[to] = keys[from];
+        position.put(heap[to], to);
+    }
+
+    private void place(int vertex, double key, int index) {
+        heap[index] = vertex;
+        keys[index] = key;
+        position.put(vertex, index);
+    }
+
+    @Override
+    public double get(int vertex) {
+        return counts.get(vertex);
+    }
+
+    @Override
+    public Int2DoubleMap toMap() {
+        return counts.toMap();
+    }
+
+    @Override
+    public void flush() {
+        counts.flush();
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return counts.sizeInBytes() + SampledGraphs.arrayBytes(heap.length, 4) + SampledGraphs.arrayBytes(keys.length, 8) + SampledGraphs.hashTableBytes(size, 4, 4);
+    }
+}
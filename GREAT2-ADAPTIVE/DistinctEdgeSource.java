@@ -0,0 +1,66 @@
+import java.io.*;
+
+
+/**
+ * drops repeated undirected edges so that the estimator sees a simple graph
+ * membership is tracked by a BlockedBloomFilter of bounded size, so a small fraction of first occurrences
+ * (the false positive rate) is dropped as well
+ * each dropped edge saves a call of Estimator.count() and a sampling decision
+ */
+public class DistinctEdgeSource implements EdgeSource {
+
+    private final EdgeSource source;
+    private final BlockedBloomFilter filter;
+    private long edges = 0;                                     // edges read from the source
+    private long dropped = 0;                                   // duplicate edges dropped
+
+    /**
+     * @param source the edge stream, possibly with duplicates
+     * @param expectedEdges number of distinct edges expected, sizes the filter
+     * @param fpp false positive probability of the filter
+     */
+    public DistinctEdgeSource(EdgeSource source, long expectedEdges, double fpp) {
+        this.source = source;
+        this.filter = new BlockedBloomFilter(expectedEdges, fpp);
+        System.out.println("duplicate edge filter: " + filter.sizeInBytes() / 1024 + " KB, " + filter.getHashes() + " hashes");
+    }
+
+    @Override
+    public int read(int[] src, int[] dst, int length) throws IOException {
+        int kept;
+        do {
+            int n = source.read(src, dst, length);
+            if (n == -1) {
+                return -1;
+            }
+            edges += n;
+
+            kept = 0;
+            for (int i = 0; i < n; i++) {
+                int u = src[i];
+                int v = dst[i];
+                // (u, v) and (v, u) are the same undirected edge
+                long key = u < v ? ((long) u << 32) | (v & 0xFFFFFFFFL) : ((long) v << 32) | (u & 0xFFFFFFFFL);
+                if (u != v && filter.putIfAbsent(key)) {
+                    continue;
+                }
+                src[kept] = u;
+                dst[kept] = v;
+                kept++;
+            }
+            dropped += n - kept;
+        } while (kept == 0);
+        return kept;
+    }
+
+    public long getDropped() {
+        return dropped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+        System.out.println("duplicate edges dropped: " + dropped + " of " + edges
+                + " (" + String.format("%4f", edges == 0 ? 0 : 100.0 * dropped / edges) + "% of count() calls saved)");
+    }
+}
@@ -0,0 +1,54 @@
+import java.io.*;
+
+
+/**
+ * convert a text edge list to the binary edge file format
+ * usage: java -cp .:<your_path_to_fastutil.jar> EdgeConverter <text edge list> [binary file]
+ * without a binary file, the cache used by Main with -Dgreat.cache=true is written next to the text file
+ */
+public class EdgeConverter {
+
+    public static void main(String[] args) throws IOException {
+        String inputGraphFile = args[0];                        // text edge list
+        String outputFile = args.length > 1 ? args[1] : null;   // binary edge file
+
+        int parseThreads = Integer.getInteger("great.parse.threads", 1);
+        EdgeSource text = parseThreads > 1 ? new ParallelTextEdgeSource(inputGraphFile, parseThreads) : new TextEdgeSource(inputGraphFile);
+
+        double time0 = System.currentTimeMillis();
+        long edges = outputFile == null ? convert(new CachingEdgeSource(text, inputGraphFile)) : convert(text, outputFile);
+        double time1 = System.currentTimeMillis();
+
+        System.out.println("converted " + edges + " edges in " + (time1 - time0) / 1000.0 + "s");
+    }
+
+    /**
+     * drain a caching source, which writes the cache file as a side effect
+     */
+    private static long convert(EdgeSource source) throws IOException {
+        int[] src = new int[4096];
+        int[] dst = new int[4096];
+
+        long edges = 0;
+        try (EdgeSource s = source) {
+            int n;
+            while ((n = s.read(src, dst, src.length)) != -1) {
+                edges += n;
+            }
+        }
+        return edges;
+    }
+
+    private static long convert(EdgeSource source, String outputFile) throws IOException {
+        int[] src = new int[4096];
+        int[] dst = new int[4096];
+
+        try (EdgeSource s = source; BinaryEdgeWriter writer = new BinaryEdgeWriter(outputFile)) {
+            int n;
+            while ((n = s.read(src, dst, src.length)) != -1) {
+                writer.write(src, dst, n);
+            }
+            return writer.getEdges();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * local triangle counts in a memory-mapped file of doubles indexed by vertex ID, for vertex sets larger than the heap
+ * the file is mapped in pages as IDs grow, untouched pages stay sparse on disk and the OS pages the counts in and out
+ */
+public class MappedLocalCountStore implements LocalCountStore {
+
+    private static final int PAGE_BITS = 24;                    // counts per page
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private final FileChannel channel;
+    private DoubleBuffer[] pages = new DoubleBuffer[0];
+
+    /**
+     * @param directory directory of the count file, which is deleted on exit
+     * @param expectedVertices expected number of vertices, more pages are mapped past it if needed
+     */
+    public MappedLocalCountStore(File directory, int expectedVertices) throws IOException {
+        File file = File.createTempFile("great-counts", ".bin", directory);
+        file.deleteOnExit();
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (expectedVertices > 0) {
+            map(expectedVertices - 1);
+        }
+    }
+
+    @Override
+    public void add(int vertex, double delta) {
+        int page = vertex >>> PAGE_BITS;
+        if (page >= pages.length) {
+            map(vertex);
+        }
+        DoubleBuffer counts = pages[page];
+        int index = vertex & PAGE_MASK;
+        counts.put(index, counts.get(index) + delta);
+    }
+
+    @Override
+    public double get(int vertex) {
+        int page = vertex >>> PAGE_BITS;
+        return page < pages.length ? pages[page].get(vertex & PAGE_MASK) : 0;
+    }
+
+    /**
+     * map the pages up to the one of the given vertex
+     */
+    private void map(int vertex) {
+        int count = (vertex >>> PAGE_BITS) + 1;
+        DoubleBuffer[] grown = new DoubleBuffer[count];
+        System.arraycopy(pages, 0, grown, 0, pages.length);
+        try {
+            for (int i = pages.length; i < count; i++) {
+                grown[i] = channel.map(FileChannel.MapMode.READ_WRITE, (long) i * PAGE_SIZE * 8, (long) PAGE_SIZE * 8)
+                        .order(ByteOrder.nativeOrder()).asDoubleBuffer();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot map the local count file", e);
+        }
+        pages = grown;
+    }
+
+    @Override
+    public Int2DoubleMap toMap() {
+        Int2DoubleOpenHashMap map = new Int2DoubleOpenHashMap();
+        for (int i = 0; i < pages.length; i++) {
+            DoubleBuffer counts = pages[i];
+            for (int j = 0; j < PAGE_SIZE; j++) {
+                double count = counts.get(j);
+                if (count != 0) {
+                    map.put((i << PAGE_BITS) | j, count);
+                }
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return (long) pages.length * PAGE_SIZE * 8;
+    }
+}
@@ -0,0 +1,75 @@
+import java.io.*;
+
+
+/**
+ * compare the parsing throughput of the readLine + split path with TextEdgeSource
+ * usage: java -cp .:<your_path_to_fastutil.jar> ParseBenchmark <graph file> [repeats]
+ */
+public class ParseBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        String inputGraphFile = args[0];                        // text edge list
+        int repeats = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        for (int r = 0; r < repeats; r++) {
+            long time0 = System.nanoTime();
+            long checksum0 = runSplit(inputGraphFile, "\t");
+            long time1 = System.nanoTime();
+            long checksum1 = runTextEdgeSource(inputGraphFile);
+            long time2 = System.nanoTime();
+
+            if (checksum0 != checksum1) {
+                throw new IllegalStateException("parsers disagree: " + checksum0 + " != " + checksum1);
+            }
+
+            System.out.println("repeat " + r + " readLine + split: " + String.format("%4f", (time1 - time0) / 1e9) + "s"
+                    + ", TextEdgeSource: " + String.format("%4f", (time2 - time1) / 1e9) + "s"
+                    + ", speedup: " + String.format("%4f", (double) (time1 - time0) / (time2 - time1)));
+        }
+    }
+
+    /**
+     * the original parsing path of Main.run
+     */
+    private static long runSplit(String inputGraphFile, String delim) throws IOException {
+        BufferedReader br = new BufferedReader(new FileReader(inputGraphFile));
+
+        long checksum = 0;
+        while(true) {
+            String line = br.readLine();
+            if(line == null) {
+                break;
+            }
+
+            int[] edge = parseEdge(line, delim);
+            checksum = checksum * 31 + edge[0] * 17 + edge[1];
+        }
+
+        br.close();
+        return checksum;
+    }
+
+    private static long runTextEdgeSource(String inputGraphFile) throws IOException {
+        int[] src = new int[4096];
+        int[] dst = new int[4096];
+
+        long checksum = 0;
+        try (EdgeSource source = new TextEdgeSource(inputGraphFile)) {
+            int n;
+            while ((n = source.read(src, dst, src.length)) != -1) {
+                for (int i = 0; i < n; i++) {
+                    checksum = checksum * 31 + src[i] * 17 + dst[i];
+                }
+            }
+        }
+        return checksum;
+    }
+
+    private static int[] parseEdge(String line, String delim) {
+        String[] tokens = line.split(delim);
+        int src = Integer.valueOf(tokens[0]);
+        int dst = Integer.valueOf(tokens[1]);
+
+        return new int[]{src, dst};
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * slots of the reservoir, a slot holds a sampled edge with its sampling probability p_uv and sampling round r_uv
+ * slot 0 is reserved by the estimator, slots 1..k hold the edges
+ */
+public interface Reservoir {
+
+    /**
+     * store an edge in a slot, replacing the edge stored there
+     * @param slot reservoir slot
+     * @param src source node of the given edge
+     * @param dst destination node of the given edge
+     * @param p sampling probability of the given edge
+     * @param round computation round the given edge was sampled in
+     */
+    void set(int slot, int src, int dst, double p, int round);
+
+    /**
+     * @return source node of the edge in the given slot
+     */
+    int src(int slot);
+
+    /**
+     * @return destination node of the edge in the given slot
+     */
+    int dst(int slot);
+
+    /**
+     * @return sampling probability of the edge in the given slot
+     */
+    double p(int slot);
+
+    /**
+     * @return computation round the edge in the given slot was sampled in
+     */
+    int round(int slot);
+
+    /**
+     * @return memory of the reservoir in bytes, heap or off-heap, for reports
+     */
+    long sizeInBytes();
+}
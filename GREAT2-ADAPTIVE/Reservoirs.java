@@ -0,0 +1,27 @@
+/**
+ * creates the reservoir by layout name
+ */
+public class Reservoirs {
+
+    private Reservoirs() {
+    }
+
+    /**
+     * @param layout arrays (separate rows of edges, p_uv and r_uv, 24 bytes per slot, exact)
+     *               packed (16 bytes per slot, p_uv as a float) or packed-offheap (the same in direct buffers)
+     * @param slots number of reservoir slots, including slot 0
+     * @return empty reservoir
+     */
+    public static Reservoir create(String layout, int slots) {
+        switch (layout) {
+            case "arrays":
+                return new ArrayReservoir(slots);
+            case "packed":
+                return new PackedReservoir(slots, false);
+            case "packed-offheap":
+                return new PackedReservoir(slots, true);
+            default:
+                throw new IllegalArgumentException("unknown reservoir layout " + layout + ", expected arrays, packed or packed-offheap");
+        }
+    }
+}
@@ -0,0 +1,267 @@
+import it.unimi.dsi.fastutil.ints.*;
+
+import java.io.*;
+import java.util.Arrays;
+
+
+/**
+ * offline relabeling of an edge stream with dense, locality-friendly vertex IDs
+ * vertices touched by nearby edges get nearby IDs, so the hash buckets of neighbors and nodeToCount
+ * used by the estimator for consecutive edges are close to each other in memory
+ *
+ * usage:
+ *   java -cp .:<your_path_to_fastutil.jar> VertexRelabeler relabel <graph file> <relabeled binary file> <mapping file> [first|degree|bfs]
+ *   java -cp .:<your_path_to_fastutil.jar> VertexRelabeler restore <mapping file> <local triangle file> <restored local triangle file>
+ *
+ * orders:
+ *   first   IDs in order of first appearance in the stream
+ *   degree  IDs by decreasing degree
+ *   bfs     IDs in breadth-first order, starting from the vertex of highest degree of each component
+ *
+ * the stream keeps its edge order, only the vertex IDs change
+ * the edges are not held in memory but spilled to a temporary binary file next to the relabeled file, 8 bytes per edge
+ * the mapping file has one "newID \t originalID" line per vertex, restore uses it to translate
+ * the local triangle file written by Estimator.output() back to the original IDs
+ */
+public class VertexRelabeler {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length >= 4 && args[0].equals("relabel")) {
+            relabel(args[1], args[2], args[3], args.length > 4 ? args[4] : "bfs");
+        } else if (args.length == 4 && args[0].equals("restore")) {
+            restore(args[1], args[2], args[3]);
+        } else {
+            System.out.println("usage: VertexRelabeler relabel <graph file> <relabeled binary file> <mapping file> [first|degree|bfs]");
+            System.out.println("       VertexRelabeler restore <mapping file> <local triangle file> <restored local triangle file>");
+        }
+    }
+
+    /**
+     * relabel the given edge stream
+     * @param inputGraphFile text or binary edge file
+     * @param outputFile relabeled binary edge file
+     * @param mappingFile new ID to original ID mapping
+     * @param order first, degree or bfs
+     */
+    public static void relabel(String inputGraphFile, String outputFile, String mappingFile, String order) throws IOException {
+        double time0 = System.currentTimeMillis();
+
+        // the stream is read once, whatever its source, and spilled with vertices numbered by first appearance to a
+        // binary file next to the output, so only per-vertex arrays are held in memory, not the edges
+        File firstFile = File.createTempFile("great-relabel", ".bin", new File(outputFile).getAbsoluteFile().getParentFile());
+        firstFile.deleteOnExit();
+        try {
+            IntArrayList originalIds = new IntArrayList();      // first appearance ID to original ID
+            IntArrayList degrees = new IntArrayList();          // degree by first appearance ID, self loops excluded
+            long edges;
+
+            Int2IntOpenHashMap firstIds = new Int2IntOpenHashMap();
+            firstIds.defaultReturnValue(-1);
+            int[] src = new int[4096];
+            int[] dst = new int[4096];
+            try (EdgeSource source = EdgeSources.open(inputGraphFile);
+                 BinaryEdgeWriter writer = new BinaryEdgeWriter(firstFile.getPath())) {
+                int n;
+                while ((n = source.read(src, dst, src.length)) != -1) {
+                    for (int i = 0; i < n; i++) {
+                        int s = firstId(firstIds, originalIds, degrees, src[i]);
+                        int d = firstId(firstIds, originalIds, degrees, dst[i]);
+                        if (s != d) {
+                            degrees.set(s, degrees.getInt(s) + 1);
+                            degrees.set(d, degrees.getInt(d) + 1);
+                        }
+                        src[i] = s;
+                        dst[i] = d;
+                    }
+                    writer.write(src, dst, n);
+                }
+                edges = writer.getEdges();
+            }
+
+            int vertices = originalIds.size();
+            int[] degree = degrees.elements();
+            System.out.println("read " + edges + " edges, " + vertices + " vertices");
+
+            // newIds[firstId] is the relabeled ID
+            int[] newIds;
+            switch (order) {
+                case "first":
+                    newIds = new int[vertices];
+                    for (int v = 0; v < vertices; v++) {
+                        newIds[v] = v;
+                    }
+                    break;
+                case "degree":
+                    newIds = degreeOrder(degree, vertices);
+                    break;
+                case "bfs":
+                    newIds = bfsOrder(firstFile.getPath(), degree, vertices);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown order: " + order);
+            }
+
+            // relabeled stream, in the original edge order
+            try (EdgeSource source = new BinaryEdgeSource(firstFile.getPath());
+                 BinaryEdgeWriter writer = new BinaryEdgeWriter(outputFile)) {
+                int n;
+                while ((n = source.read(src, dst, src.length)) != -1) {
+                    for (int i = 0; i < n; i++) {
+                        src[i] = newIds[src[i]];
+                        dst[i] = newIds[dst[i]];
+                    }
+                    writer.write(src, dst, n);
+                }
+            }
+
+            int[] newToOriginal = new int[vertices];
+            for (int v = 0; v < vertices; v++) {
+                newToOriginal[newIds[v]] = originalIds.getInt(v);
+            }
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(mappingFile))) {
+                for (int i = 0; i < vertices; i++) {
+                    writer.write(i + "\t" + newToOriginal[i] + "\n");
+                }
+            }
+        } finally {
+            firstFile.delete();
+        }
+
+        double time1 = System.currentTimeMillis();
+        System.out.println("relabeled in " + (time1 - time0) / 1000.0 + "s, order: " + order);
+    }
+
+    private static int firstId(Int2IntOpenHashMap firstIds, IntArrayList originalIds, IntArrayList degrees, int vertex) {
+        int id = firstIds.get(vertex);
+        if (id == -1) {
+            id = originalIds.size();
+            firstIds.put(vertex, id);
+            originalIds.add(vertex);
+            degrees.add(0);
+        }
+        return id;
+    }
+
+    /**
+     * @return new IDs by decreasing degree, ties broken by first appearance
+     */
+    private static int[] degreeOrder(int[] degree, int vertices) {
+        // counting sort, stable so equal degrees keep the first appearance order
+        int maxDegree = 0;
+        for (int v = 0; v < vertices; v++) {
+            maxDegree = Math.max(maxDegree, degree[v]);
+        }
+        int[] start = new int[maxDegree + 2];
+        for (int v = 0; v < vertices; v++) {
+            start[maxDegree - degree[v] + 1]++;
+        }
+        for (int i = 1; i < start.length; i++) {
+            start[i] += start[i - 1];
+        }
+
+        int[] newIds = new int[vertices];
+        for (int v = 0; v < vertices; v++) {
+            newIds[v] = start[maxDegree - degree[v]]++;
+        }
+        return newIds;
+    }
+
+    /**
+     * @param firstFile binary edge file with vertices numbered by first appearance
+     * @return new IDs in breadth-first order, each component starting from its vertex of highest degree
+     */
+    private static int[] bfsOrder(String firstFile, int[] degree, int vertices) throws IOException {
+        // adjacency in compressed sparse row form, with long offsets into a big array for streams of more than 2^30 edges
+        long[] offsets = new long[vertices + 1];
+        for (int v = 0; v < vertices; v++) {
+            offsets[v + 1] = offsets[v] + degree[v];
+        }
+        int[][] adjacency = IntBigArrays.newBigArray(offsets[vertices]);
+        long[] fill = Arrays.copyOf(offsets, vertices);
+        int[] src = new int[4096];
+        int[] dst = new int[4096];
+        try (EdgeSource source = new BinaryEdgeSource(firstFile)) {
+            int n;
+            while ((n = source.read(src, dst, src.length)) != -1) {
+                for (int i = 0; i < n; i++) {
+                    if (src[i] != dst[i]) {
+                        IntBigArrays.set(adjacency, fill[src[i]]++, dst[i]);
+                        IntBigArrays.set(adjacency, fill[dst[i]]++, src[i]);
+                    }
+                }
+            }
+        }
+
+        // roots are tried by decreasing degree
+        int[] roots = degreeOrder(degree, vertices);
+        int[] rootOrder = new int[vertices];
+        for (int v = 0; v < vertices; v++) {
+            rootOrder[roots[v]] = v;
+        }
+
+        int[] newIds = new int[vertices];
+        Arrays.fill(newIds, -1);
+        int[] queue = new int[vertices];
+        int next = 0;
+        for (int r = 0; r < vertices; r++) {
+            int root = rootOrder[r];
+            if (newIds[root] != -1) {
+                continue;
+            }
+
+            int head = next;
+            queue[next] = root;
+            newIds[root] = next++;
+            while (head < next) {
+                int v = queue[head++];
+                for (long i = offsets[v]; i < offsets[v + 1]; i++) {
+                    int u = IntBigArrays.get(adjacency, i);
+                    if (newIds[u] == -1) {
+                        queue[next] = u;
+                        newIds[u] = next++;
+                    }
+                }
+            }
+        }
+        return newIds;
+    }
+
+    /**
+     * translate a local triangle file written with relabeled IDs back to the original IDs
+     * the result has one line per original ID from 0 to the largest original ID, like Estimator.output()
+     * @param mappingFile new ID to original ID mapping written by relabel
+     * @param localFile local triangle file of the relabeled stream
+     * @param restoredFile local triangle file with original IDs
+     */
+    public static void restore(String mappingFile, String localFile, String restoredFile) throws IOException {
+        IntArrayList newToOriginal = new IntArrayList();
+        int maxID = -1;
+        try (BufferedReader reader = new BufferedReader(new FileReader(mappingFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                int original = Integer.parseInt(parts[1]);
+                newToOriginal.add(original);
+                maxID = Math.max(maxID, original);
+            }
+        }
+
+        double[] counts = new double[maxID + 1];
+        try (BufferedReader reader = new BufferedReader(new FileReader(localFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t");
+                int id = Integer.parseInt(parts[0]);
+                if (id < newToOriginal.size()) {
+                    counts[newToOriginal.getInt(id)] = Double.parseDouble(parts[1]);
+                }
+            }
+        }
+
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(restoredFile))) {
+            for (int i = 0; i <= maxID; i++) {
+                writer.write(i + "\t" + counts[i] + "\n");
+            }
+        }
+    }
+}
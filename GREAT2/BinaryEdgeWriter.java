@@ -0,0 +1,75 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * writes edges in the binary edge file format read by BinaryEdgeSource
+ */
+public class BinaryEdgeWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 22;            // bytes written to the channel at once
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private long edges = 0;                                     // number of edges written so far
+
+    public BinaryEdgeWriter(String outputFile) throws IOException {
+        this.channel = FileChannel.open(Paths.get(outputFile),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        // the number of edges is unknown until close
+        buffer.put(BinaryEdgeSource.MAGIC);
+        buffer.putInt(BinaryEdgeSource.VERSION);
+        buffer.putInt(0);
+        buffer.putLong(-1);
+    }
+
+    /**
+     * append edges to the file
+     * @param src source nodes of the edges
+     * @param dst destination nodes of the edges
+     * @param length number of edges to append
+     */
+    public void write(int[] src, int[] dst, int length) throws IOException {
+        for (int i = 0; i < length; i++) {
+            if (buffer.remaining() < BinaryEdgeSource.EDGE_SIZE) {
+                flush();
+            }
+            buffer.putInt(src[i]);
+            buffer.putInt(dst[i]);
+        }
+        edges += length;
+    }
+
+    public long getEdges() {
+        return edges;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * flush the buffered edges and record the number of edges in the header
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+
+            ByteBuffer count = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            count.putLong(0, edges);
+            channel.write(count, 16);
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.regex.Pattern;
+
+
+/**
+ * passes the edges of a text source through and writes them to a binary cache file on the way
+ * the cache lives next to the text file and is keyed by its size and modification time,
+ * so later runs on the unchanged file read the binary cache instead of parsing the text again
+ */
+public class CachingEdgeSource implements EdgeSource {
+
+    private static final String SUFFIX = ".edges.bin";
+
+    private final EdgeSource source;
+    private final Path cacheFile;
+    private final Path tempFile;                                // renamed to cacheFile once the source is exhausted
+    private final BinaryEdgeWriter writer;
+    private boolean complete = false;
+
+    /**
+     * @param source text source of inputGraphFile
+     * @param inputGraphFile graph file path
+     */
+    public CachingEdgeSource(EdgeSource source, String inputGraphFile) throws IOException {
+        this.source = source;
+        this.cacheFile = cacheFile(inputGraphFile);
+        this.tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+        this.writer = new BinaryEdgeWriter(tempFile.toString());
+    }
+
+    /**
+     * @param inputGraphFile graph file path
+     * @return path of the binary cache of the given text edge list, e.g. graphFile.1048576-1700000000000.edges.bin
+     */
+    public static Path cacheFile(String inputGraphFile) throws IOException {
+        Path input = Paths.get(inputGraphFile).toAbsolutePath();
+        long size = Files.size(input);
+        long mtime = Files.getLastModifiedTime(input).toMillis();
+        return input.resolveSibling(input.getFileName() + "." + size + "-" + mtime + SUFFIX);
+    }
+
+    /**
+     * @return whether the given file is a binary cache written by this class, or one being written
+     */
+    public static boolean isCacheFile(Path file) {
+        String name = file.getFileName().toString();
+        return name.matches(".*\\.\\d+-\\d+" + Pattern.quote(SUFFIX) + "(\\.tmp)?");
+    }
+
+    @Override
+    public int read(int[] src, int[] dst, int length) throws IOException {
+        int n = source.read(src, dst, length);
+        if (n == -1) {
+            complete = true;
+        } else {
+            writer.write(src, dst, n);
+        }
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            source.close();
+        } finally {
+            writer.close();
+            if (complete) {
+                Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                System.out.println("edge cache written: " + cacheFile + " (" + writer.getEdges() + " edges)");
+                deleteStaleCaches();
+            } else {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    /**
+     * remove caches of earlier versions of the same text file
+     */
+    private void deleteStaleCaches() throws IOException {
+        String name = cacheFile.getFileName().toString();
+        String prefix = name.substring(0, name.lastIndexOf('.', name.length() - SUFFIX.length() - 1) + 1);
+        try (DirectoryStream<Path> siblings = Files.newDirectoryStream(cacheFile.getParent(), prefix + "*" + SUFFIX)) {
+            for (Path sibling : siblings) {
+                String key = sibling.getFileName().toString();
+                key = key.substring(prefix.length(), key.length() - SUFFIX.length());
+                if (key.matches("\\d+-\\d+") && !sibling.equals(cacheFile)) {
+                    Files.deleteIfExists(sibling);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * bounded single-producer/single-consumer ring of preallocated edge batches
+ * the producer claims a free batch, fills it and publishes it, the consumer takes published batches in order
+ * and releases them for reuse, so batches are recycled and never allocated after construction
+ */
+public class EdgeBatchRing {
+
+    private final int[][] src;                                  // source nodes of each batch
+    private final int[][] dst;                                  // destination nodes of each batch
+    private final int[] size;                                   // number of edges of each batch, -1 marks the end of the stream
+    private final int mask;
+
+    private volatile long head = 0;                             // sequence of the next batch to be taken
+    private volatile long tail = 0;                             // sequence of the next batch to be published
+    private volatile boolean closed = false;                    // consumer gave up, the producer should stop
+
+    /**
+     * @param batches number of batches in the ring, rounded up to a power of two
+     * @param batchSize maximum number of edges of a batch
+     */
+    public EdgeBatchRing(int batches, int batchSize) {
+        int capacity = Integer.highestOneBit(Math.max(1, batches - 1)) << 1;
+        this.src = new int[capacity][batchSize];
+        this.dst = new int[capacity][batchSize];
+        this.size = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public int batchSize() {
+        return src[0].length;
+    }
+
+    public int[] src(int slot) {
+        return src[slot];
+    }
+
+    public int[] dst(int slot) {
+        return dst[slot];
+    }
+
+    public int size(int slot) {
+        return size[slot];
+    }
+
+    /**
+     * producer side, wait for a free batch
+     * @return slot of the batch to fill, or -1 if the ring was closed by the consumer
+     */
+    public int claim() {
+        long seq = tail;
+        int idle = 0;
+        while (seq - head > mask) {
+            if (closed) {
+                return -1;
+            }
+            idle = backoff(idle);
+        }
+        return (int) (seq & mask);
+    }
+
+    /**
+     * producer side, hand the claimed batch to the consumer
+     * @param edges number of edges written to the batch, -1 for the end of the stream
+     */
+    public void publish(int edges) {
+        long seq = tail;
+        size[(int) (seq & mask)] = edges;
+        tail = seq + 1;                                         // volatile write publishes the batch content
+    }
+
+    /**
+     * consumer side, wait for the next published batch
+     * @return slot of the batch
+     */
+    public int take() {
+        long seq = head;
+        int idle = 0;
+        while (seq == tail) {
+            idle = backoff(idle);
+        }
+        return (int) (seq & mask);
+    }
+
+    /**
+     * consumer side, give the taken batch back to the producer
+     */
+    public void release() {
+        head = head + 1;
+    }
+
+    /**
+     * consumer side, stop the producer
+     */
+    public void close() {
+        closed = true;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    private static int backoff(int idle) {
+        if (idle < 100) {
+            Thread.onSpinWait();
+        } else if (idle < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(50000);
+        }
+        return idle + 1;
+    }
+}
@@ -0,0 +1,18 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+
+/**
+ * a stream of edges delivered in primitive batches, so that no object is created per edge
+ */
+public interface EdgeSource extends Closeable {
+
+    /**
+     * read the next edges of the stream, in arrival order
+     * @param src receives the source nodes of the edges read
+     * @param dst receives the destination nodes of the edges read
+     * @param length maximum number of edges to read
+     * @return number of edges read, or -1 when the stream is exhausted
+     */
+    int read(int[] src, int[] dst, int length) throws IOException;
+}
@@ -0,0 +1,108 @@
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+
+/**
+ * opens the edge source matching the given graph file
+ */
+public class EdgeSources {
+
+    private EdgeSources() {
+    }
+
+    /**
+     * open a binary edge file or a text edge list, detected by the binary magic
+     * @param inputGraphFile graph file path
+     */
+    public static EdgeSource open(String inputGraphFile) throws IOException {
+        return open(inputGraphFile, 1, false, null);
+    }
+
+    /**
+     * open a binary edge file or a text edge list, detected by the binary magic
+     * a text edge list ending with ".gz" is decompressed on a background thread
+     * a directory, or a list file prefixed with '@', is streamed shard by shard
+     * live streams are opened with "-" (text on stdin), "tcp://host:port" (text from a producer listening there),
+     * "tcp://:port" (text from a producer connecting to this port) or "ring:<ring file>" (see RingEdgeSource)
+     * @param inputGraphFile graph file path
+     * @param parseThreads number of threads parsing chunks of an uncompressed text edge list in parallel
+     * @param cached read a text edge list from its binary cache, written on the first run
+     * @param idDictionary maps vertex IDs, which may then be any long, to dense IDs in stream order; null keeps int IDs
+     *                     the dictionary is only filled by the thread reading the returned source,
+     *                     so parallel parsing, shard prefetching and the binary cache are not used with it
+     */
+    public static EdgeSource open(String inputGraphFile, int parseThreads, boolean cached, LongIdDictionary idDictionary) throws IOException {
+        if (inputGraphFile.equals("-")) {
+            return text(new TextEdgeSource(Channels.newChannel(System.in)), idDictionary);
+        }
+        if (inputGraphFile.startsWith("tcp://")) {
+            return text(new TextEdgeSource(openSocket(inputGraphFile.substring("tcp://".length()))), idDictionary);
+        }
+        if (inputGraphFile.startsWith("ring:")) {
+            return dense(new RingEdgeSource(inputGraphFile.substring("ring:".length())), idDictionary);
+        }
+        if (inputGraphFile.startsWith("@") || new File(inputGraphFile).isDirectory()) {
+            return new ShardedEdgeSource(ShardedEdgeSource.listShards(inputGraphFile), parseThreads, cached, idDictionary);
+        }
+
+        if (BinaryEdgeSource.isBinaryEdgeFile(inputGraphFile)) {
+            return dense(new BinaryEdgeSource(inputGraphFile), idDictionary);
+        }
+
+        if (idDictionary != null) {
+            TextEdgeSource source = inputGraphFile.endsWith(".gz") ? new TextEdgeSource(new InflatingChannel(inputGraphFile)) : new TextEdgeSource(inputGraphFile);
+            return text(source, idDictionary);
+        }
+
+        if (cached) {
+            File cacheFile = CachingEdgeSource.cacheFile(inputGraphFile).toFile();
+            if (cacheFile.isFile()) {
+                System.out.println("reading edge cache: " + cacheFile);
+                return new BinaryEdgeSource(cacheFile.getPath());
+            }
+        }
+
+        EdgeSource source;
+        if (inputGraphFile.endsWith(".gz")) {
+            source = new TextEdgeSource(new InflatingChannel(inputGraphFile));
+        } else if (parseThreads > 1) {
+            source = new ParallelTextEdgeSource(inputGraphFile, parseThreads);
+        } else {
+            source = new TextEdgeSource(inputGraphFile);
+        }
+        return cached ? new CachingEdgeSource(source, inputGraphFile) : source;
+    }
+
+    private static EdgeSource text(TextEdgeSource source, LongIdDictionary idDictionary) {
+        source.setIdDictionary(idDictionary);
+        return source;
+    }
+
+    private static EdgeSource dense(EdgeSource source, LongIdDictionary idDictionary) {
+        return idDictionary == null ? source : new DictionaryEdgeSource(source, idDictionary);
+    }
+
+    /**
+     * connect to host:port, or accept one connection on the loopback port if the host is empty
+     * the socket is read in blocking mode, so TCP flow control stops the producer while the estimator is busy
+     */
+    private static SocketChannel openSocket(String address) throws IOException {
+        int colon = address.lastIndexOf(':');
+        String host = address.substring(0, colon);
+        int port = Integer.parseInt(address.substring(colon + 1));
+
+        if (!host.isEmpty()) {
+            return SocketChannel.open(new InetSocketAddress(host, port));
+        }
+
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            System.out.println("waiting for an edge stream on port " + port);
+            return server.accept();
+        }
+    }
+}
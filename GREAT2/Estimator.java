@@ -10,34 +10,36 @@ import java.io.*;
 public class Estimator {
 
 
-    private Int2ObjectOpenHashMap<Int2IntOpenHashMap> neighbors = new Int2ObjectOpenHashMap<>();  // graph composed of the sampled edges
+    private SampledGraph neighbors = new HashSampledGraph();  // graph composed of the sampled edges
+    private final CommonNeighbors common = new CommonNeighbors();  // common neighbors of the edge being counted
     
-    private Int2DoubleOpenHashMap nodeToCount = new Int2DoubleOpenHashMap(); // local triangle counts
+    private LocalCountStore nodeToCount = new HashLocalCountStore();         // local triangle counts, see LocalCountStores
+    private boolean localCounts = true;                                      // false in the global scope, only the global count is kept
+    private long[] watched = null;                                           // bitmap of the vertices whose local counts are kept, null for all
+    private long[] watchedSeen = null;                                       // bitmap of the watched vertices that appeared in the stream
+    private TopKLocalCountStore top = null;                                  // vertices with the largest local counts, null if not tracked
     private double globalTriangle = 0;                          // global triangles
     private int maxID = -1;
+    private LongIdDictionary idDictionary = null;               // external IDs of the dense vertex IDs, null if IDs are not mapped
 
     private double p;                                           // sampling probability
     private int k;                                              // size of the reservoir
-    private int[][] reservoir;              
+    private final Reservoir reservoir;                          // sampled edges with their p_uv and r_uv, see Reservoirs
     private double t = 0;                                       // number of streaming edges processed so far
 
     private int next_slot_index = 1;                            // for top-k edges in reservoir sampling
     private int store_index = 0;
     private int empty_slot = 0;                                 // current empty slot of the reservoir
 
-    private int[] delete_index;                                 // position of the deleted edges
-    private int[] remain_index;                                 // position of the remaining edges
-
-    private List<Integer> numbers = new ArrayList<>();          // for generating the random index 
+    private int[] slot_order;                                   // reservoir slots in random order, the first N are emptied this round and the rest remain
 
     private double cur_round = 1;                               // current computation round of sampling scheme
     private double alpha;                                       // discard probability of an edge
     private double survive_rate;                                // survive probability of an edge, 1-alpha
-    private double[] survive_rate_array = new double[10000];    // cache of the (1-alpha)^(2r - r_uw - r_vw)
+    private double[] survive_rate_array = new double[64];       // cache of the (1-alpha)^(2r - r_uw - r_vw), grown with the rounds
 
     
     
-    private double[][] p_and_round;                             // store p_uv and r_uv of each corresponding edge in reservoir
     private final Random random = new Random();
 
     private int N;                                              // number of deleted edges
@@ -46,25 +48,29 @@ public class Estimator {
 
 
     public Estimator(int sizeOfReservoir,double alpha) {
-        this.reservoir = new int[2][sizeOfReservoir + 1];      // we have special uses of index '0' 
+        this(sizeOfReservoir, alpha, "arrays");
+    }
+
+    /**
+     * @param layout arrays, packed or packed-offheap, see Reservoirs
+     */
+    public Estimator(int sizeOfReservoir, double alpha, String layout) {
+        this.reservoir = Reservoirs.create(layout, sizeOfReservoir + 1);      // we have special uses of index '0' 
         this.k = sizeOfReservoir;
-        this.p_and_round = new double[2][sizeOfReservoir + 1];
         this.alpha = alpha;
 
         this.N = (int) (k * alpha);
 
         survive_rate = 1 - alpha;
         survive_rate_array[0] = 1;
-        for (int i = 1; i < 10000; i++) {
+        for (int i = 1; i < survive_rate_array.length; i++) {
             survive_rate_array[i] = survive_rate_array[i - 1] * survive_rate;
         }
 
-        for (int i = 1; i < k + 1; i++) {
-            numbers.add(i);
+        slot_order = new int[k];
+        for (int i = 0; i < k; i++) {
+            slot_order[i] = i + 1;
         }
-
-        delete_index = new int[N];
-        remain_index = new int[k - N];
     }
 
     /**
@@ -93,11 +99,7 @@ public class Estimator {
 
         if (t < k + 1) {
             // top-k edges in reservoir sampling
-            reservoir[0][next_slot_index] = src;
-            reservoir[1][next_slot_index] = dst;
-
-            p_and_round[0][next_slot_index] = 1.0;
-            p_and_round[1][next_slot_index] = 1.0;
+            reservoir.set(next_slot_index, src, dst, 1.0, 1);
 
             sample(src, dst, next_slot_index);
             next_slot_index++;
@@ -106,72 +108,156 @@ public class Estimator {
             // now the sampling probability turns to be k / t
             if (empty_slot == 0) {
                 // reservoir is full now, we need to randomly discard N edges
-                cur_round++;
+                nextRound();
+            }
+
+            // if there are still have some slots for coming edges, keep sampling
+            if (empty_slot > 0) {
 
-                randomIndex();
+                
+                p = (double) k / t;
+                double randomValue = random.nextDouble();
+                if (randomValue < p) {
+                    // sample the coming edge
+                    int insertIndex = slot_order[empty_slot - 1];
+                    reservoir.set(insertIndex, src, dst, p, (int) cur_round);
 
-                if (alpha <= 0.5) {
-                    // remove edges
-                    for (int i = 0; i < N; i++) {
-                        int index_tobeRemove = delete_index[i];
+                    sample(src, dst, insertIndex);
+                    empty_slot--;
 
-                        int src_tobeRemove = reservoir[0][index_tobeRemove];
-                        int dst_tobeRemove = reservoir[1][index_tobeRemove];
+                    
+                }
 
-                        deleteEdge(src_tobeRemove, dst_tobeRemove);
-                    }
-                } else {
-                     //obviously, when alpha > 0.5, save the remaining would be faster
-                    Int2ObjectOpenHashMap<Int2IntOpenHashMap> temp_neighbors = new Int2ObjectOpenHashMap<>();
+            } else return;
+        }
 
-                    int remaining = k - N;
 
-                    for (int i = 0; i < remaining; i++) {
-                        int index_tobeRemain = remain_index[i];
+    }
 
-                        int src_tobeRemain = reservoir[0][index_tobeRemain];
-                        int dst_tobeRemain = reservoir[1][index_tobeRemain];
+    /**
+     * process a batch of edges in the given order, with the same result as calling processEdge on each of them
+     * the phase of the reservoir and the sampling probability are only re-read at round transitions
+     * @param src source nodes of the edges
+     * @param dst destination nodes of the edges
+     * @param offset index of the first edge of the batch
+     * @param length number of edges of the batch
+     * @return statistics of the batch
+     */
+    public BatchStats processEdges(int[] src, int[] dst, int offset, int length) {
+        BatchStats stats = new BatchStats();
+        long triangles = discoverd_triangles;
+        int batchMaxID = maxID;
+        int end = offset + length;
+        int i = offset;
+
+        // top-k edges in reservoir sampling
+        for (; i < end && t < k; i++) {
+            int u = src[i];
+            int v = dst[i];
+            if (u == v) { //ignore self loop
+                stats.selfLoops++;
+                continue;
+            }
 
-                        temp_neighbors.computeIfAbsent(src_tobeRemain, k -> new Int2IntOpenHashMap())
-                                .put(dst_tobeRemain, index_tobeRemain);
+            t++;
+            batchMaxID = Math.max(batchMaxID, Math.max(u, v));
 
-                        temp_neighbors.computeIfAbsent(dst_tobeRemain, k -> new Int2IntOpenHashMap())
-                                .put(src_tobeRemain, index_tobeRemain);
+            count(u, v);
 
-                    }
+            reservoir.set(next_slot_index, u, v, 1.0, 1);
 
-                    neighbors = temp_neighbors;
-                }
-                
-                empty_slot = N;
+            sample(u, v, next_slot_index);
+            next_slot_index++;
+            stats.sampled++;
+        }
 
+        double kd = k;
+        for (; i < end; i++) {
+            int u = src[i];
+            int v = dst[i];
+            if (u == v) { //ignore self loop
+                stats.selfLoops++;
+                continue;
             }
 
-            // if there are still have some slots for coming edges, keep sampling
-            if (empty_slot > 0) {
+            t++;
+            batchMaxID = Math.max(batchMaxID, Math.max(u, v));
 
-                
-                p = (double) k / t;
-                double randomValue = random.nextDouble();
-                if (randomValue < p) {
-                    // sample the coming edge
-                    int insertIndex = delete_index[empty_slot - 1];
-                    reservoir[0][insertIndex] = src;
-                    reservoir[1][insertIndex] = dst;
+            count(u, v);
 
-                    p_and_round[0][insertIndex] = p;
-                    p_and_round[1][insertIndex] = cur_round;
+            if (empty_slot == 0) {
+                nextRound();
+                stats.rounds++;
+            }
 
-                    sample(src, dst, insertIndex);
-                    empty_slot--;
+            if (empty_slot > 0) {
+                p = kd / t;
+                if (random.nextDouble() < p) {
+                    int insertIndex = slot_order[empty_slot - 1];
+                    reservoir.set(insertIndex, u, v, p, (int) cur_round);
 
-                    
+                    sample(u, v, insertIndex);
+                    empty_slot--;
+                    stats.sampled++;
                 }
+            }
+        }
 
-            } else return;
+        maxID = batchMaxID;
+        stats.edges = length - stats.selfLoops;
+        stats.triangles = discoverd_triangles - triangles;
+        return stats;
+    }
+
+    /**
+     * start a new computation round, the reservoir is full and N edges are randomly discarded
+     */
+    private void nextRound() {
+        cur_round++;
+        if (2 * cur_round >= survive_rate_array.length) {
+            growSurviveRate();
         }
 
+        randomIndex();
+
+        if (alpha <= 0.5) {
+            // remove edges
+            for (int i = 0; i < N; i++) {
+                int index_tobeRemove = slot_order[i];
+
+                int src_tobeRemove = reservoir.src(index_tobeRemove);
+                int dst_tobeRemove = reservoir.dst(index_tobeRemove);
 
+                deleteEdge(src_tobeRemove, dst_tobeRemove);
+            }
+        } else {
+             //obviously, when alpha > 0.5, save the remaining would be faster
+            neighbors.clear();
+
+            int remaining = k - N;
+
+            for (int i = 0; i < remaining; i++) {
+                int index_tobeRemain = slot_order[N + i];
+
+                int src_tobeRemain = reservoir.src(index_tobeRemain);
+                int dst_tobeRemain = reservoir.dst(index_tobeRemain);
+
+                neighbors.add(src_tobeRemain, dst_tobeRemain, index_tobeRemain);
+            }
+        }
+        
+        empty_slot = N;
+    }
+
+    /**
+     * double survive_rate_array, a triangle of round r has an age 2r - r_uw - r_vw of at most 2r - 2
+     */
+    private void growSurviveRate() {
+        int from = survive_rate_array.length;
+        survive_rate_array = Arrays.copyOf(survive_rate_array, 2 * from);
+        for (int i = from; i < survive_rate_array.length; i++) {
+            survive_rate_array[i] = survive_rate_array[i - 1] * survive_rate;
+        }
     }
 
     /**
@@ -181,8 +267,7 @@ public class Estimator {
      * @param dst destination node of the given edge
      */
     private void sample(int src, int dst, int storeIndex) {
-        neighbors.computeIfAbsent(src, k -> new Int2IntOpenHashMap()).put(dst, storeIndex);
-        neighbors.computeIfAbsent(dst, k -> new Int2IntOpenHashMap()).put(src, storeIndex);
+        neighbors.add(src, dst, storeIndex);
     }
 
     /**
@@ -191,21 +276,7 @@ public class Estimator {
      * @param dst destination node of the given edge
      */
     private void deleteEdge(int src, int dst) {
-        Int2IntOpenHashMap map = neighbors.get(src);
-        if (map != null) {
-            map.remove(dst);
-            if (map.isEmpty()) {
-                neighbors.remove(src);
-            }
-        }
-
-        map = neighbors.get(dst);
-        if (map != null) {
-            map.remove(src);
-            if (map.isEmpty()) {
-                neighbors.remove(dst);
-            }
-        }
+        neighbors.remove(src, dst);
     }
 
     /**
@@ -214,86 +285,204 @@ public class Estimator {
      * @param dst destination node of the given edge
      */
     private void count(int src, int dst) {
-
-        // if this edge has a new node, there cannot be any triangles
-        if(!neighbors.containsKey(src) || !neighbors.containsKey(dst)) {
-            return;
+        if (watchedSeen != null) {
+            see(src);
+            see(dst);
         }
 
-        // source node to neighbors
-        Int2IntOpenHashMap srcMap = neighbors.get(src);
-
-        // destination node to neighbors
-        Int2IntOpenHashMap dstMap = neighbors.get(dst);
-
-        if(srcMap.size() > dstMap.size()) {
-            Int2IntOpenHashMap temp = srcMap;
-            srcMap = dstMap;
-            dstMap = temp;
+        // find common neighborhood, there is none if this edge has a new node
+        int found = neighbors.intersect(src, dst, common);
+        if (found == 0) {
+            return;
         }
 
         // the sum of counts increased
         double countSum = 0;
 
+        // update counter
+        for (int i = 0; i < found; i++) {
+            int neighbor = common.vertices[i];
+            discoverd_triangles++;
 
-        // find common neighborhood and update counter
-        for (Int2IntMap.Entry entry : srcMap.int2IntEntrySet()) {
-            int neighbor = entry.getIntKey();
-            int indexDst = dstMap.get(neighbor);
-
-            
-            if (indexDst != 0) {  // thats the special use of index '0', we find a common neighborhood
-                discoverd_triangles++;
+            if (t < k + 1) {
 
-                if (t < k + 1) {
-                    
-                    countSum += 1;
-                    nodeToCount.addTo(neighbor, 1); // update the local triangle count of the common neighbor
-                } else {
-                    // caculate the probability
-                    int indexSrc = entry.getIntValue();
-                    
-                    // weight = p_uw * p_vw * (1 - alpha) ^ (2r - r_vw - r_uw)
-                    double weight = p_and_round[0][indexSrc] * p_and_round[0][indexDst] * survive_rate_array[(int) (2 * cur_round - p_and_round[1][indexSrc] - p_and_round[1][indexDst])];
-                    double count = 1 / weight;
-                    countSum += count;
-                    nodeToCount.addTo(neighbor, count); // update the local triangle count of the common neighbor
+                countSum += 1;
+                if (localCounts) {
+                    addLocal(neighbor, 1); // update the local triangle count of the common neighbor
+                }
+            } else {
+                // caculate the probability
+                int indexSrc = common.srcSlots[i];
+                int indexDst = common.dstSlots[i];
+
+                // weight = p_uw * p_vw * (1 - alpha) ^ (2r - r_vw - r_uw)
+                double weight = reservoir.p(indexSrc) * reservoir.p(indexDst) * survive_rate_array[(int) (2 * cur_round - reservoir.round(indexSrc) - reservoir.round(indexDst))];
+                double count = 1 / weight;
+                countSum += count;
+                if (localCounts) {
+                    addLocal(neighbor, count); // update the local triangle count of the common neighbor
                 }
-
             }
         }
 
 
         if(countSum > 0) {
-            nodeToCount.addTo(src, countSum); // update the local triangle count of the source node
-            nodeToCount.addTo(dst, countSum); // update the local triangle count of the destination node
+            if (localCounts) {
+                addLocal(src, countSum); // update the local triangle count of the source node
+                addLocal(dst, countSum); // update the local triangle count of the destination node
+            }
             globalTriangle += countSum;       // update the global triangle count
         }
     }
 
+    /**
+     * add to the local triangle count of a vertex, unless the watch scope leaves it out
+     * @param vertex dense vertex ID
+     * @param count count added
+     */
+    private void addLocal(int vertex, double count) {
+        if (watched == null || isWatched(vertex)) {
+            nodeToCount.add(vertex, count);
+        }
+    }
+
+    private boolean isWatched(int vertex) {
+        return vertex >>> 6 < watched.length && (watched[vertex >>> 6] & 1L << vertex) != 0;
+    }
+
+    /**
+     * record that a vertex appeared in the stream, if it is watched
+     */
+    private void see(int vertex) {
+        int word = vertex >>> 6;
+        if (word < watched.length) {
+            watchedSeen[word] |= watched[word] & 1L << vertex;
+        }
+    }
+
+    /**
+     * @return dense IDs of the watched vertices seen in the stream so far, from the set bits of the bitmaps, ordered like output()
+     */
+    private int[] watchedIds() {
+        IntArrayList ids = new IntArrayList();
+        int unseen = 0;
+        for (int i = 0; i < watched.length; i++) {
+            unseen += Long.bitCount(watched[i] & ~watchedSeen[i]);
+            for (long bits = watched[i] & watchedSeen[i]; bits != 0; bits &= bits - 1) {
+                ids.add(i << 6 | Long.numberOfTrailingZeros(bits));
+            }
+        }
+        if (unseen > 0) {
+            System.out.println(unseen + " watched vertices are not in the stream, they are left out of the local triangle file");
+        }
+
+        int[] order = ids.toIntArray();
+        if (idDictionary != null) {
+            IntArrays.quickSort(order, new AbstractIntComparator() {
+                @Override
+                public int compare(int a, int b) {
+                    return Long.compare(idDictionary.key(a), idDictionary.key(b));
+                }
+            });
+        }
+        return order;
+    }
+
     /**
      * generate the random index of deleted edges of remaining edges
      */
     private void randomIndex() {
+        // partial Fisher-Yates shuffle: swap a uniformly chosen slot of the unchosen tail into each of the first N positions,
+        // slot_order stays a permutation, so the N slots of every round are a uniform sample without any allocation
+        for (int i = 0; i < N; i++) {
+            int j = i + random.nextInt(k - i);
+            int slot = slot_order[j];
+            slot_order[j] = slot_order[i];
+            slot_order[i] = slot;
+        }
+    }
 
-        if (alpha <= 0.5) {
-            // generate N different random number
-            IntOpenHashSet indicesToDelete = new IntOpenHashSet();
-            while (indicesToDelete.size() < N) {
-                indicesToDelete.add(1 + random.nextInt(k));
-            }
-            delete_index = indicesToDelete.toIntArray();
+    /**
+     * use external vertex IDs in output(), the edges given to processEdge carry the dense IDs of this dictionary
+     * @param idDictionary dictionary mapping external IDs to dense IDs, null for plain int IDs
+     */
+    public void setIdDictionary(LongIdDictionary idDictionary) {
+        this.idDictionary = idDictionary;
+    }
 
-        } else {
-            // shuffle a 0-k sequence
-            List<Integer> number = numbers;
-            Collections.shuffle(number, random);
+    /**
+     * choose the store of the sampled graph, before the first edge is processed
+     * @param store hash, flat, tiered, sorted or compressed, see SampledGraphs
+     */
+    public void setSampledGraph(String store) {
+        neighbors = SampledGraphs.create(store, k + 1);
+    }
 
-            delete_index = number.subList(0, N).stream().mapToInt(i -> i).toArray();
-            remain_index = number.subList(N, number.size()).stream().mapToInt(i -> i).toArray();
+    public SampledGraph getSampledGraph() {
+        return neighbors;
+    }
 
+    /**
+     * choose the store of the local triangle counts, after the scope and before the first edge is processed
+     * nothing is built in the global scope, which keeps no local counts
+     * @param store auto, hash, dense, dense-float or mapped, see LocalCountStores
+     * @param expectedVertices expected number of vertices, 0 if unknown
+     * @param buffer number of updates combined before they reach the store, see BufferedLocalCountStore, 0 for none
+     * @param topK number of vertices with the largest counts tracked for topK, see TopKLocalCountStore, 0 for none
+     */
+    public void setLocalCountStore(String store, int expectedVertices, int buffer, int topK) throws IOException {
+        if (!localCounts) {
+            return;
+        }
+        nodeToCount = LocalCountStores.create(store, expectedVertices);
+        top = null;
+        if (topK > 0) {
+            top = new TopKLocalCountStore(nodeToCount, topK);
+            nodeToCount = top;
+        }
+        if (buffer > 0) {
+            nodeToCount = new BufferedLocalCountStore(nodeToCount, buffer);
         }
+    }
 
+    /**
+     * choose which local triangle counts are kept, before the local count store and the first edge
+     * @param scope full (every vertex), watch (only the given vertices) or global (none, no local count store is built)
+     * @param watchList dense IDs of the vertices kept in the watch scope
+     */
+    public void setScope(String scope, int[] watchList) {
+        switch (scope) {
+            case "full":
+                localCounts = true;
+                watched = null;
+                watchedSeen = null;
+                break;
+            case "watch":
+                int max = -1;
+                for (int vertex : watchList) {
+                    max = Math.max(max, vertex);
+                }
+                localCounts = true;
+                watched = new long[(max >> 6) + 1];
+                for (int vertex : watchList) {
+                    watched[vertex >>> 6] |= 1L << vertex;
+                }
+                watchedSeen = new long[watched.length];
+                break;
+            case "global":
+                localCounts = false;
+                watched = null;
+                watchedSeen = null;
+                nodeToCount = new HashLocalCountStore();     // stays empty
+                top = null;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown scope " + scope + ", expected full, watch or global");
+        }
+    }
+
+    public Reservoir getReservoir() {
+        return reservoir;
     }
 
     public double getGlobalTriangle() {
@@ -301,7 +490,30 @@ public class Estimator {
     }
 
     public Int2DoubleMap getLocalTriangle() {
-        return nodeToCount;
+        nodeToCount.flush();
+        return nodeToCount.toMap();
+    }
+
+    /**
+     * @param vertex dense vertex ID
+     * @return local triangle estimate of the given vertex
+     */
+    public double getLocalTriangle(int vertex) {
+        nodeToCount.flush();
+        return nodeToCount.get(vertex);
+    }
+
+    /**
+     * answered from the tracked vertices, without a pass over the local counts
+     * @param n number of vertices, at most the number tracked, see setLocalCountStore
+     * @return dense IDs of the n vertices with the largest local triangle estimates so far, largest first
+     */
+    public int[] topK(int n) {
+        if (top == null) {
+            throw new IllegalStateException("the top vertices are not tracked, see setLocalCountStore");
+        }
+        nodeToCount.flush();
+        return top.topK(n);
     }
 
     public double getAlpha() {
@@ -317,15 +529,20 @@ public class Estimator {
      * output local triangle estimation to file
      */ 
     public void output() throws IOException {
+        nodeToCount.flush();
         String fileName = "/data1/local-GREAT2.txt";      // local triangle estimation file path
 
         BufferedWriter writer = new BufferedWriter(new FileWriter(fileName));
-        for (int i = 0; i <= maxID; i++) {
+        // with mapped IDs, one line per vertex seen, ordered by external ID; in the watch scope, only the watched vertices
+        int[] order = watched != null ? watchedIds() : idDictionary == null ? null : idDictionary.idsByKey();
+        int lines = order == null ? maxID + 1 : order.length;
+        for (int i = 0; i < lines; i++) {
             if (i % 50000000 == 0) {
                 System.out.println("writing node: " + i);
             }
-            double count = nodeToCount.getOrDefault(i, 0.0); 
-            writer.write(i + "\t" + count + "\n");
+            int id = order == null ? i : order[i];
+            double count = nodeToCount.get(id); 
+            writer.write((idDictionary == null ? String.valueOf(id) : String.valueOf(idDictionary.key(id))) + "\t" + count + "\n");
         }
         writer.close();
     }
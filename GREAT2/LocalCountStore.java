@@ -0,0 +1,36 @@
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+
+
+/**
+ * local triangle counts of the vertices, updated for every discovered triangle
+ */
+public interface LocalCountStore {
+
+    /**
+     * add to the local triangle count of a vertex
+     * @param vertex dense vertex ID
+     * @param delta count added
+     */
+    void add(int vertex, double delta);
+
+    /**
+     * @param vertex dense vertex ID
+     * @return local triangle count of the given vertex, 0 if it is in no triangle
+     */
+    double get(int vertex);
+
+    /**
+     * @return the vertices with a local triangle count and their counts, a live view for the hash store, a copy otherwise
+     */
+    Int2DoubleMap toMap();
+
+    /**
+     * apply the updates held back by a write-combining layer, nothing to do for a plain store
+     */
+    void flush();
+
+    /**
+     * @return memory of the counts in bytes, heap or mapped, for reports
+     */
+    long sizeInBytes();
+}
@@ -0,0 +1,45 @@
+import java.io.File;
+import java.io.IOException;
+
+
+/**
+ * creates the store of the local triangle counts by name
+ */
+public class LocalCountStores {
+
+    private LocalCountStores() {
+    }
+
+    /**
+     * @param store hash (a hash map, the vertices in a triangle take space), dense (a double array indexed by vertex ID)
+     *              dense-float (a float array, half the memory, less precision), mapped (a memory-mapped file of doubles in java.io.tmpdir)
+     *              or auto: hash if the vertex count is unknown, dense if the array fits in a quarter of the heap, mapped otherwise
+     * @param expectedVertices expected number of vertices (the largest vertex ID + 1), 0 if unknown
+     * @return empty store
+     */
+    public static LocalCountStore create(String store, int expectedVertices) throws IOException {
+        if (store.equals("auto")) {
+            if (expectedVertices <= 0) {
+                store = "hash";
+            } else if (8L * expectedVertices <= Runtime.getRuntime().maxMemory() / 4) {
+                store = "dense";
+            } else {
+                store = "mapped";
+            }
+            System.out.println("local triangle counts: " + store);
+        }
+
+        switch (store) {
+            case "hash":
+                return new HashLocalCountStore();
+            case "dense":
+                return new DenseLocalCountStore(expectedVertices);
+            case "dense-float":
+                return new FloatLocalCountStore(expectedVertices);
+            case "mapped":
+                return new MappedLocalCountStore(new File(System.getProperty("java.io.tmpdir")), expectedVertices);
+            default:
+                throw new IllegalArgumentException("unknown local count store " + store + ", expected auto, hash, dense, dense-float or mapped");
+        }
+    }
+}
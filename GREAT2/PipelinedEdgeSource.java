@@ -0,0 +1,93 @@
+import java.io.*;
+
+
+/**
+ * decodes the given source on a reader thread, so that parsing overlaps with the estimator
+ * edges are passed through an EdgeBatchRing and come out exactly in the order of the source
+ */
+public class PipelinedEdgeSource implements EdgeSource {
+
+    private final EdgeBatchRing ring;
+    private final Thread reader;
+    private volatile Throwable failure;                         // error raised by the reader thread
+
+    private int slot = -1;                                      // batch being drained, -1 if none
+    private int offset = 0;                                     // next edge of that batch
+    private boolean finished = false;
+
+    /**
+     * @param source the source read by the reader thread, closed by it when exhausted
+     * @param batches number of batches in flight
+     * @param batchSize number of edges per batch
+     */
+    public PipelinedEdgeSource(EdgeSource source, int batches, int batchSize) {
+        this.ring = new EdgeBatchRing(batches, batchSize);
+        this.reader = new Thread(() -> fill(source), "edge-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * reader thread, fill batches until the source is exhausted
+     */
+    private void fill(EdgeSource source) {
+        try (EdgeSource s = source) {
+            while (true) {
+                int claimed = ring.claim();
+                if (claimed == -1) {
+                    return;                                     // consumer closed the pipeline
+                }
+
+                int n = s.read(ring.src(claimed), ring.dst(claimed), ring.batchSize());
+                ring.publish(n);                                // -1 tells the consumer the stream ended
+                if (n == -1) {
+                    return;
+                }
+            }
+        } catch (Throwable e) {
+            failure = e;
+            if (!ring.isClosed() && ring.claim() != -1) {
+                ring.publish(-1);
+            }
+        }
+    }
+
+    @Override
+    public int read(int[] src, int[] dst, int length) throws IOException {
+        if (finished) {
+            return -1;
+        }
+
+        if (slot != -1 && offset == ring.size(slot)) {
+            ring.release();
+            slot = -1;
+        }
+
+        if (slot == -1) {
+            slot = ring.take();
+            offset = 0;
+            if (ring.size(slot) == -1) {
+                finished = true;
+                ring.release();
+                slot = -1;
+
+                Throwable e = failure;
+                if (e != null) {
+                    throw e instanceof IOException ? (IOException) e : new IOException("edge reader failed", e);
+                }
+                return -1;
+            }
+        }
+
+        int n = Math.min(length, ring.size(slot) - offset);
+        System.arraycopy(ring.src(slot), offset, src, 0, n);
+        System.arraycopy(ring.dst(slot), offset, dst, 0, n);
+        offset += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        ring.close();
+    }
+}
@@ -0,0 +1,138 @@
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * reads edges from a memory-mapped ring file written by another process (see RingEdgeWriter)
+ * the ring has a fixed capacity, a writer that gets a full ring waits for this reader,
+ * so a slow estimator throttles the producer instead of letting its buffers grow
+ * the ring is initialized in a temporary file renamed over the ring file, so a writer never maps a ring being reset,
+ * and a ring serves one writer: one left by an earlier run is closed or claimed, and a new writer waits for a new ring
+ *
+ * file layout (little-endian):
+ *   bytes 0-7     magic "GREATRNG"
+ *   bytes 8-11    format version
+ *   bytes 12-15   capacity in edges, a power of two
+ *   bytes 64-71   write position, number of edges published by the writer
+ *   bytes 72-75   1 once the writer has closed the stream
+ *   bytes 76-79   1 once a writer has claimed the ring
+ *   bytes 128-135 read position, number of edges consumed by the reader
+ *   bytes 256-    capacity (src, dst) int pairs, edge i is stored in slot i % capacity
+ */
+public class RingEdgeSource implements EdgeSource {
+
+    static final byte[] MAGIC = "GREATRNG".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 2;
+    static final int CAPACITY_OFFSET = 12;
+    static final int WRITE_OFFSET = 64;
+    static final int CLOSED_OFFSET = 72;
+    static final int CLAIMED_OFFSET = 76;
+    static final int READ_OFFSET = 128;
+    static final int DATA_OFFSET = 256;
+
+    // ordered access to the positions shared with the other process
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final int DEFAULT_CAPACITY = 1 << 22;        // edges, 32 MB of ring
+
+    private final Path path;
+    private final Object fileKey;                               // identity of the ring file, to delete only this one on close
+    private final FileChannel channel;
+    private final MappedByteBuffer ring;
+    private final int mask;
+    private long readPos = 0;
+
+    /**
+     * create the ring file, replacing an existing one, for a writer to attach to
+     * @param ringFile ring file path
+     */
+    public RingEdgeSource(String ringFile) throws IOException {
+        this(ringFile, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param ringFile ring file path
+     * @param capacity number of edges the ring holds, rounded up to a power of two
+     */
+    public RingEdgeSource(String ringFile, int capacity) throws IOException {
+        capacity = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.mask = capacity - 1;
+
+        // a writer mapping an existing ring file keeps its old file, the new ring only appears once it is initialized
+        this.path = Paths.get(ringFile).toAbsolutePath();
+        Path temp = Files.createTempFile(path.getParent(), path.getFileName() + ".", ".tmp");
+        this.channel = FileChannel.open(temp, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.ring = channel.map(FileChannel.MapMode.READ_WRITE, 0, DATA_OFFSET + (long) capacity * BinaryEdgeSource.EDGE_SIZE);
+        ring.order(ByteOrder.LITTLE_ENDIAN);
+
+        ring.put(MAGIC, 0, MAGIC.length);
+        ring.putInt(8, VERSION);
+        ring.putInt(CAPACITY_OFFSET, capacity);
+        ring.force();
+        this.fileKey = Files.readAttributes(temp, BasicFileAttributes.class).fileKey();
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public int read(int[] src, int[] dst, int length) throws IOException {
+        long available;
+        int idle = 0;
+        while ((available = (long) LONGS.getAcquire(ring, WRITE_OFFSET) - readPos) == 0) {
+            if ((int) INTS.getAcquire(ring, CLOSED_OFFSET) != 0 && (long) LONGS.getAcquire(ring, WRITE_OFFSET) == readPos) {
+                return -1;
+            }
+            idle = backoff(idle);
+        }
+
+        int n = (int) Math.min(length, available);
+        for (int i = 0; i < n; i++) {
+            int offset = DATA_OFFSET + (int) ((readPos + i) & mask) * BinaryEdgeSource.EDGE_SIZE;
+            src[i] = ring.getInt(offset);
+            dst[i] = ring.getInt(offset + 4);
+        }
+
+        readPos += n;
+        LONGS.setRelease(ring, READ_OFFSET, readPos);           // hand the slots back to the writer
+        return n;
+    }
+
+    static int backoff(int idle) {
+        if (idle < 100) {
+            Thread.onSpinWait();
+        } else if (idle < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(50000);
+        }
+        return idle + 1;
+    }
+
+    /**
+     * unmap the ring and delete the ring file, unless a newer reader has replaced it
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        try {
+            if (fileKey != null && fileKey.equals(Files.readAttributes(path, BasicFileAttributes.class).fileKey())) {
+                Files.delete(path);
+            }
+        } catch (NoSuchFileException e) {
+            // already removed
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * graph composed of the sampled edges, every edge remembers the reservoir slot it is stored in
+ * an edge is undirected: adding (u, v) again replaces its slot, removing (v, u) removes it
+ */
+public interface SampledGraph {
+
+    /**
+     * add an edge to the graph
+     * @param src source node of the given edge
+     * @param dst destination node of the given edge
+     * @param slot reservoir slot of the given edge
+     */
+    void add(int src, int dst, int slot);
+
+    /**
+     * remove an edge from the graph, nothing happens if it is not in the graph
+     * @param src source node of the given edge
+     * @param dst destination node of the given edge
+     */
+    void remove(int src, int dst);
+
+    /**
+     * remove all edges
+     */
+    void clear();
+
+    /**
+     * find the common neighbors of two nodes, i.e. the triangles closed by the edge (src, dst)
+     * @param src source node of the given edge
+     * @param dst destination node of the given edge
+     * @param common receives the common neighbors and the slots of their edges to src and dst
+     * @return number of common neighbors
+     */
+    int intersect(int src, int dst, CommonNeighbors common);
+
+    /**
+     * @return number of edges, counted by walking the graph, for reports
+     */
+    long edges();
+
+    /**
+     * @return estimated memory of the graph in bytes on a 64-bit JVM with compressed references, computed by walking the graph, for reports
+     */
+    long sizeInBytes();
+}
@@ -0,0 +1,62 @@
+import it.unimi.dsi.fastutil.Hash;
+import it.unimi.dsi.fastutil.HashCommon;
+
+
+/**
+ * creates the store of the sampled graph by name
+ */
+public class SampledGraphs {
+
+    private static final int HASH_TABLE_BYTES = 56;            // fields of a fastutil open hash map
+
+    private SampledGraphs() {
+    }
+
+    /**
+     * @param store hash (a hash map per node), flat (primitive arrays, no object per node)
+     *              tiered (a container per node that follows its degree: sorted array, hash map, hash map and bitmap)
+     *              sorted (a sorted array per node, intersected with SIMD instructions when available)
+     *              or compressed (delta + varint encoded neighbors, for budgets that do not fit in memory otherwise)
+     * @param slots number of reservoir slots
+     * @return empty sampled graph
+     */
+    public static SampledGraph create(String store, int slots) {
+        switch (store) {
+            case "hash":
+                return new HashSampledGraph();
+            case "flat":
+                return new FlatSampledGraph(slots);
+            case "tiered":
+                return new TieredSampledGraph();
+            case "sorted":
+                SortedSampledGraph graph = new SortedSampledGraph();
+                System.out.println("sorted adjacency intersection: " + graph.kernelName());
+                return graph;
+            case "compressed":
+                return new CompressedSampledGraph();
+            default:
+                throw new IllegalArgumentException("unknown sampled graph store " + store + ", expected hash, flat, tiered, sorted or compressed");
+        }
+    }
+
+    /**
+     * @return estimated bytes of an array on a 64-bit JVM with compressed references
+     */
+    static long arrayBytes(int length, int elementBytes) {
+        return (16 + (long) length * elementBytes + 7) & ~7L;
+    }
+
+    /**
+     * @return estimated bytes of a fastutil open hash map (a set if valueBytes is 0) of the given size, created with the default capacity
+     */
+    static long hashTableBytes(int size, int keyBytes, int valueBytes) {
+        return hashTableCapacityBytes(HashCommon.arraySize(Math.max(size, Hash.DEFAULT_INITIAL_SIZE), Hash.DEFAULT_LOAD_FACTOR), keyBytes, valueBytes);
+    }
+
+    /**
+     * @return bytes of a fastutil open hash map (a set if valueBytes is 0) whose table has the given capacity
+     */
+    static long hashTableCapacityBytes(int capacity, int keyBytes, int valueBytes) {
+        return HASH_TABLE_BYTES + arrayBytes(capacity + 1, keyBytes) + (valueBytes == 0 ? 0 : arrayBytes(capacity + 1, valueBytes));
+    }
+}